@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.benchmark;
+
+import androidx.annotation.NonNull;
+
+import java.util.Random;
+
+/**
+ * Deterministic synthetic audio shared by the benchmarks: a slowly swelling tone with noise on
+ * top, so peaks vary across buckets the way speech or music would.
+ */
+final class BenchmarkData {
+    static final int BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private static final long SEED = 0x7469646521L;
+
+    private BenchmarkData() { }
+
+    @NonNull
+    static short[] pcm16(int sampleCount) {
+        Random random = new Random(SEED);
+        short[] samples = new short[sampleCount];
+        for (int i = 0; i < sampleCount; ++i) {
+            double envelope = 0.5 + 0.5 * Math.sin(i / 44100.0);
+            double tone = Math.sin(i * 0.0627) * envelope * 24000.0;
+            samples[i] = (short) Math.max(Short.MIN_VALUE,
+                    Math.min(Short.MAX_VALUE, tone + random.nextGaussian() * 2000.0));
+        }
+        return samples;
+    }
+
+    @NonNull
+    static byte[] bytes(int length) {
+        short[] samples = pcm16(Math.min(length, 1 << 20));
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            bytes[i] = (byte) (samples[i % samples.length] >> 8);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.alshakib.tide.geometry.ChunkGeometry;
+
+/**
+ * Bar layout done for every rasterized frame, with the default 3dp/1dp bars at xxhdpi. The
+ * expansion factor is below one as it is during the expansion animation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkGeometryBenchmark {
+    private static final int CHUNK_WIDTH = 9;
+    private static final int CHUNK_SPACING = 3;
+    private static final int CHUNK_RADIUS = 6;
+    private static final int CHUNK_MIN_HEIGHT = 3;
+    private static final int CHUNK_MAX_HEIGHT = 168;
+    private static final int CENTER_Y = CHUNK_MAX_HEIGHT / 2;
+    private static final float FACTOR = 0.75F;
+
+    @Param({"100", "500", "1000", "2000"})
+    public int chunks;
+
+    private ChunkGeometry geometry;
+    private byte[] peaks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        geometry = new ChunkGeometry();
+        geometry.set(CHUNK_WIDTH, CHUNK_SPACING, CHUNK_RADIUS, CHUNK_MIN_HEIGHT, CHUNK_MAX_HEIGHT);
+        peaks = BenchmarkData.bytes(chunks);
+        for (int i = 0; i < peaks.length; ++i) {
+            peaks[i] = (byte) Math.min(Byte.MAX_VALUE, Math.abs(peaks[i]));
+        }
+    }
+
+    @Benchmark
+    public float[] linePoints() {
+        return geometry.getLinePoints(peaks, 0, peaks.length, CENTER_Y, FACTOR, CHUNK_WIDTH / 2F);
+    }
+
+    @Benchmark
+    public void halfHeights(Blackhole blackhole) {
+        for (byte peak : peaks) {
+            blackhole.consume(geometry.getHalfHeight(peak, FACTOR));
+        }
+    }
+}
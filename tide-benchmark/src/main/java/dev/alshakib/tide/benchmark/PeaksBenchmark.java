@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.alshakib.tide.sampler.PeakPyramid;
+import dev.alshakib.tide.sampler.StreamingSampler;
+
+/**
+ * Resampling the visible window of a built pyramid to the view's chunk count through the
+ * windowed {@link PeakPyramid#getPeaks(byte[], byte[], int, int, double, double)} that
+ * {@code TideView} uses. This happens on every layout, chunk size change and, when zoomed in,
+ * on every pan across a chunk boundary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class PeaksBenchmark {
+    private static final double ZOOM = 16.0;
+
+    @Param({"1", "500"})
+    public int megabytes;
+
+    @Param({"100", "500", "1000", "2000"})
+    public int chunks;
+
+    private PeakPyramid pyramid;
+    private byte[] peaks;
+    private byte[] rms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] bytes = BenchmarkData.bytes(megabytes * BenchmarkData.BYTES_PER_MEGABYTE);
+        StreamingSampler sampler = new StreamingSampler();
+        sampler.add(bytes, 0, bytes.length);
+        pyramid = sampler.build();
+        peaks = new byte[chunks];
+        rms = new byte[chunks];
+    }
+
+    @Benchmark
+    public byte[] getPeaks() {
+        pyramid.getPeaks(peaks, null, 0, chunks, 0.0, 1.0);
+        return peaks;
+    }
+
+    @Benchmark
+    public byte[] getPeaksWithRms() {
+        pyramid.getPeaks(peaks, rms, 0, chunks, 0.0, 1.0);
+        return rms;
+    }
+
+    @Benchmark
+    public byte[] getZoomedPeaksWithRms() {
+        double start = 0.5 - 0.5 / ZOOM;
+        pyramid.getPeaks(peaks, rms, 0, chunks, start, start + 1.0 / ZOOM);
+        return rms;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.alshakib.tide.sampler.PeakPyramid;
+import dev.alshakib.tide.sampler.SampleReducer;
+import dev.alshakib.tide.sampler.StreamingSampler;
+
+/**
+ * Cost of each built-in {@link SampleReducer} when resampling a whole pyramid to the view's
+ * chunk count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SampleReducerBenchmark {
+    @Param({"MAX_ABS", "RMS", "STRIDED_AVERAGE", "LTTB"})
+    public String reducer;
+
+    @Param({"100", "1000"})
+    public int chunks;
+
+    private PeakPyramid pyramid;
+    private SampleReducer sampleReducer;
+    private byte[] peaks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byte[] bytes = BenchmarkData.bytes(100 * BenchmarkData.BYTES_PER_MEGABYTE);
+        StreamingSampler sampler = new StreamingSampler();
+        sampler.add(bytes, 0, bytes.length);
+        pyramid = sampler.build();
+        sampleReducer = getReducer(reducer);
+        peaks = new byte[chunks];
+    }
+
+    @Benchmark
+    public byte[] reduce() {
+        pyramid.getPeaks(peaks, 0, chunks, 0.0, 1.0, sampleReducer);
+        return peaks;
+    }
+
+    private static SampleReducer getReducer(String name) {
+        switch (name) {
+            case "RMS":
+                return SampleReducer.RMS;
+            case "STRIDED_AVERAGE":
+                return SampleReducer.STRIDED_AVERAGE;
+            case "LTTB":
+                return SampleReducer.LTTB;
+            default:
+                return SampleReducer.MAX_ABS;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import dev.alshakib.tide.sampler.PeakPyramid;
+import dev.alshakib.tide.sampler.StreamingSampler;
+
+/**
+ * Reduces raw input into a {@link PeakPyramid} on one thread, as {@code setRawData} and the
+ * decoders do. Sizes span a short clip to a long recording.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SamplerBenchmark {
+    @Param({"1", "16", "128", "500"})
+    public int megabytes;
+
+    private byte[] bytes;
+    private short[] samples;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int length = megabytes * BenchmarkData.BYTES_PER_MEGABYTE;
+        bytes = BenchmarkData.bytes(length);
+        samples = BenchmarkData.pcm16(length / Short.BYTES);
+    }
+
+    @Benchmark
+    public PeakPyramid sampleBytes() {
+        StreamingSampler sampler = new StreamingSampler();
+        sampler.add(bytes, 0, bytes.length);
+        return sampler.build();
+    }
+
+    @Benchmark
+    public PeakPyramid samplePcm16Stereo() {
+        StreamingSampler sampler = new StreamingSampler();
+        for (int offset = 0; offset < samples.length; offset += StreamingSampler.DEFAULT_BUFFER_SIZE) {
+            int length = Math.min(StreamingSampler.DEFAULT_BUFFER_SIZE, samples.length - offset);
+            sampler.add(samples, offset, length, 2);
+        }
+        return sampler.build();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.cli;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import dev.alshakib.tide.decoder.AudioDecoder;
+import dev.alshakib.tide.decoder.PcmDecoder;
+import dev.alshakib.tide.sampler.ParallelSampler;
+import dev.alshakib.tide.sampler.PeakPyramid;
+import dev.alshakib.tide.sampler.PeaksFile;
+import dev.alshakib.tide.sampler.PipelinedSampler;
+import dev.alshakib.tide.sampler.StreamingSampler;
+
+/**
+ * Turns one audio file into a {@link PeaksFile}. WAV files are decoded in process; anything else
+ * is piped through ffmpeg as 16-bit WAV when an ffmpeg executable is configured.
+ */
+public class PeaksGenerator {
+    // One buffer is decoded into while the pool samples the other
+    private static final ThreadLocal<short[][]> PCM_BUFFERS = new ThreadLocal<short[][]>() {
+        @Override
+        protected short[][] initialValue() {
+            return new short[2][StreamingSampler.DEFAULT_BUFFER_SIZE];
+        }
+    };
+
+    private final String ffmpeg;
+    private final int bucketCapacity;
+
+    public PeaksGenerator(@Nullable String ffmpeg, int bucketCapacity) {
+        this.ffmpeg = ffmpeg;
+        this.bucketCapacity = bucketCapacity;
+    }
+
+    @NonNull
+    public PeakPyramid generate(@NonNull File input, @NonNull File output) throws IOException {
+        PeakPyramid pyramid = sample(input);
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        PeaksFile.write(output, pyramid, input.getName());
+        return pyramid;
+    }
+
+    @NonNull
+    public PeakPyramid sample(@NonNull File input) throws IOException {
+        if (isWav(input)) {
+            try (AudioDecoder decoder = PcmDecoder.fromWav(new BufferedInputStream(new FileInputStream(input)))) {
+                return sample(decoder);
+            }
+        }
+        if (ffmpeg == null) {
+            throw new IOException("Not a WAV file and no ffmpeg configured: " + input);
+        }
+        Process process = new ProcessBuilder(ffmpeg, "-v", "error", "-i", input.getPath(),
+                "-f", "wav", "-acodec", "pcm_s16le", "-")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        process.getOutputStream().close();
+        PeakPyramid pyramid;
+        try (AudioDecoder decoder = PcmDecoder.fromWav(new BufferedInputStream(process.getInputStream()))) {
+            pyramid = sample(decoder);
+        } catch (IOException e) {
+            process.destroy();
+            throw e;
+        }
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode != 0) {
+                throw new IOException("ffmpeg exited with " + exitCode + " on " + input);
+            }
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decoding " + input, e);
+        }
+        return pyramid;
+    }
+
+    @NonNull
+    private PeakPyramid sample(@NonNull AudioDecoder decoder) throws IOException {
+        short[][] buffers = PCM_BUFFERS.get();
+        PipelinedSampler sampler = new PipelinedSampler(new StreamingSampler(bucketCapacity, true),
+                ParallelSampler.getDefaultPool(), buffers[0], buffers[1]);
+        try {
+            sampler.add(decoder);
+        } finally {
+            sampler.join();
+        }
+        return sampler.build();
+    }
+
+    private static boolean isWav(@NonNull File file) throws IOException {
+        byte[] header = new byte[PcmDecoder.WAV_HEADER_PROBE_SIZE];
+        int length = 0;
+        try (InputStream stream = new FileInputStream(file)) {
+            while (length < header.length) {
+                int read = stream.read(header, length, header.length - length);
+                if (read == -1) {
+                    break;
+                }
+                length += read;
+            }
+        }
+        return PcmDecoder.isWav(header, length);
+    }
+}
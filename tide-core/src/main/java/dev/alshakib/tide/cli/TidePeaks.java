@@ -0,0 +1,198 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.cli;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import dev.alshakib.tide.sampler.PeaksFile;
+import dev.alshakib.tide.sampler.StreamingSampler;
+
+/**
+ * Command-line entry point that precomputes {@link PeaksFile}s for a directory of audio files on
+ * a fixed thread pool. Each input {@code name.ext} is written as {@code name.ext.tide} under the
+ * output directory, keeping its relative path, and can be handed to
+ * {@code TideView.loadPeaksFile} as is.
+ */
+public final class TidePeaks {
+    private static final String USAGE = "Usage: tide-peaks [options] <input-dir> [<output-dir>]\n"
+            + "  -t, --threads <n>      worker threads (default: available processors)\n"
+            + "  -r, --recursive        descend into subdirectories\n"
+            + "  -f, --ffmpeg <path>    decode non-WAV files through ffmpeg\n"
+            + "  -b, --buckets <n>      finest level bucket count, even and at least 2 (default: "
+            + StreamingSampler.DEFAULT_BUCKET_CAPACITY + ")\n";
+
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private TidePeaks() { }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int buckets = StreamingSampler.DEFAULT_BUCKET_CAPACITY;
+        boolean recursive = false;
+        String ffmpeg = null;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-t":
+                case "--threads":
+                    threads = parseInt(args, ++i);
+                    if (threads <= 0) {
+                        exitWithUsage("Thread count must be positive: " + threads);
+                    }
+                    break;
+                case "-r":
+                case "--recursive":
+                    recursive = true;
+                    break;
+                case "-f":
+                case "--ffmpeg":
+                    ffmpeg = getValue(args, ++i);
+                    break;
+                case "-b":
+                case "--buckets":
+                    buckets = parseInt(args, ++i);
+                    // Buckets are merged pairwise whenever the level fills up
+                    if (buckets < 2 || buckets % 2 != 0) {
+                        exitWithUsage("Bucket count must be an even number of at least 2: " + buckets);
+                    }
+                    break;
+                case "-h":
+                case "--help":
+                    System.out.print(USAGE);
+                    return;
+                default:
+                    paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty() || paths.size() > 2) {
+            exitWithUsage(paths.isEmpty() ? "Missing input directory" : "Too many arguments");
+        }
+        File inputDir = new File(paths.get(0));
+        File outputDir = new File(paths.size() > 1 ? paths.get(1) : paths.get(0));
+        if (!inputDir.isDirectory()) {
+            System.err.println("Not a directory: " + inputDir);
+            System.exit(2);
+        }
+        List<File> inputs = new ArrayList<>();
+        collect(inputDir, recursive, inputs);
+        System.exit(run(inputDir, outputDir, inputs, new PeaksGenerator(ffmpeg, buckets), threads));
+    }
+
+    private static int run(@NonNull File inputDir, @NonNull File outputDir, @NonNull List<File> inputs,
+                           @NonNull PeaksGenerator generator, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long startTime = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(inputs.size());
+        for (File input : inputs) {
+            File output = new File(outputDir, relativize(inputDir, input) + PeaksFile.EXTENSION);
+            futures.add(executor.submit(() -> {
+                generator.generate(input, output);
+                return null;
+            }));
+        }
+        int processed = 0;
+        int failed = 0;
+        long bytes = 0;
+        for (int i = 0; i < futures.size(); ++i) {
+            try {
+                futures.get(i).get();
+                bytes += inputs.get(i).length();
+                ++processed;
+            } catch (ExecutionException e) {
+                System.err.println(inputs.get(i) + ": " + e.getCause().getMessage());
+                ++failed;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        executor.shutdownNow();
+        double seconds = Math.max(System.nanoTime() - startTime, 1L) / NANOS_PER_SECOND;
+        System.out.println(String.format(Locale.US,
+                "%d files (%d failed) in %.2f s on %d threads: %.2f files/s, %.2f MB/s",
+                processed, failed, seconds, threads, processed / seconds,
+                bytes / BYTES_PER_MEGABYTE / seconds));
+        return failed == 0 ? 0 : 1;
+    }
+
+    private static void collect(@NonNull File directory, boolean recursive, @NonNull List<File> out) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (recursive) {
+                    collect(file, true, out);
+                }
+            } else if (file.isFile() && !file.getName().endsWith(PeaksFile.EXTENSION)) {
+                out.add(file);
+            }
+        }
+    }
+
+    @NonNull
+    private static String relativize(@NonNull File root, @NonNull File file) {
+        return root.toURI().relativize(file.toURI()).getPath();
+    }
+
+    @NonNull
+    private static String getValue(@NonNull String[] args, int index) {
+        if (index >= args.length) {
+            exitWithUsage("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+
+    private static int parseInt(@NonNull String[] args, int index) {
+        String value = getValue(args, index);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            exitWithUsage("Not a number for " + args[index - 1] + ": " + value);
+            return 0;
+        }
+    }
+
+    private static void exitWithUsage(@NonNull String message) {
+        System.err.println(message);
+        System.err.print(USAGE);
+        System.exit(2);
+    }
+}
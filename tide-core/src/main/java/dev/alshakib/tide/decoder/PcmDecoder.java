@@ -0,0 +1,276 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.decoder;
+
+import androidx.annotation.NonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pure Java decoder for little-endian linear PCM, either headerless or wrapped in a RIFF/WAVE
+ * container. 8, 16, 24 and 32-bit integer samples and 32-bit float samples are supported.
+ */
+public class PcmDecoder implements AudioDecoder {
+    public static final int ENCODING_PCM_8BIT = 1;
+    public static final int ENCODING_PCM_16BIT = 2;
+    public static final int ENCODING_PCM_24BIT = 3;
+    public static final int ENCODING_PCM_32BIT = 4;
+    public static final int ENCODING_PCM_FLOAT = 5;
+
+    public static final int WAV_HEADER_PROBE_SIZE = 12;
+
+    private static final int WAVE_FORMAT_PCM = 0x0001;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    private final InputStream stream;
+    private final int sampleRate;
+    private final int channelCount;
+    private final int encoding;
+    private final int bytesPerSample;
+
+    private byte[] scratch;
+    private long remaining;
+
+    public PcmDecoder(@NonNull InputStream stream, int sampleRate, int channelCount, int encoding) {
+        this(stream, sampleRate, channelCount, encoding, -1L);
+    }
+
+    public PcmDecoder(@NonNull InputStream stream, int sampleRate, int channelCount,
+                      int encoding, long dataLength) {
+        if (channelCount <= 0) {
+            throw new IllegalArgumentException("channelCount must be positive");
+        }
+        this.stream = stream;
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.encoding = encoding;
+        this.bytesPerSample = getBytesPerSample(encoding);
+        this.remaining = dataLength < 0 ? Long.MAX_VALUE : dataLength;
+        this.scratch = new byte[0];
+    }
+
+    public static boolean isWav(@NonNull byte[] header, int length) {
+        return length >= WAV_HEADER_PROBE_SIZE
+                && header[0] == 'R' && header[1] == 'I' && header[2] == 'F' && header[3] == 'F'
+                && header[8] == 'W' && header[9] == 'A' && header[10] == 'V' && header[11] == 'E';
+    }
+
+    @NonNull
+    public static PcmDecoder fromWav(@NonNull InputStream stream) throws IOException {
+        byte[] header = new byte[16];
+        readFully(stream, header, WAV_HEADER_PROBE_SIZE);
+        if (!isWav(header, WAV_HEADER_PROBE_SIZE)) {
+            throw new IOException("Not a RIFF/WAVE stream");
+        }
+        int sampleRate = 0;
+        int channelCount = 0;
+        int encoding = 0;
+        while (true) {
+            readFully(stream, header, 8);
+            long chunkSize = readInt(header, 4) & 0xFFFFFFFFL;
+            if (isChunk(header, 'f', 'm', 't', ' ')) {
+                if (chunkSize < 16) {
+                    throw new IOException("Malformed fmt chunk");
+                }
+                readFully(stream, header, 16);
+                int format = readShort(header, 0);
+                channelCount = readShort(header, 2);
+                sampleRate = readInt(header, 4);
+                int bitsPerSample = readShort(header, 14);
+                if (channelCount <= 0) {
+                    throw new IOException("Invalid channel count " + channelCount);
+                }
+                if (sampleRate <= 0) {
+                    throw new IOException("Invalid sample rate " + sampleRate);
+                }
+                if (bitsPerSample <= 0) {
+                    throw new IOException("Invalid bits per sample " + bitsPerSample);
+                }
+                long extra = chunkSize - 16;
+                if (format == WAVE_FORMAT_EXTENSIBLE && extra >= 10) {
+                    readFully(stream, header, 10);
+                    format = readShort(header, 8);
+                    extra -= 10;
+                }
+                skipFully(stream, extra + (chunkSize & 1));
+                encoding = toEncoding(format, bitsPerSample);
+            } else if (isChunk(header, 'd', 'a', 't', 'a')) {
+                if (encoding == 0) {
+                    throw new IOException("data chunk found before fmt chunk");
+                }
+                long dataLength = chunkSize == 0 || chunkSize == 0xFFFFFFFFL ? -1L : chunkSize;
+                return new PcmDecoder(stream, sampleRate, channelCount, encoding, dataLength);
+            } else {
+                skipFully(stream, chunkSize + (chunkSize & 1));
+            }
+        }
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    @Override
+    public int read(@NonNull short[] buffer, int offset, int length) throws IOException {
+        int frameSize = channelCount * bytesPerSample;
+        long wanted = Math.min((long) (length / channelCount) * frameSize, remaining - remaining % frameSize);
+        if (wanted <= 0) {
+            return -1;
+        }
+        if (scratch.length < wanted) {
+            scratch = new byte[(int) wanted];
+        }
+        int filled = 0;
+        while (filled < wanted) {
+            int read = stream.read(scratch, filled, (int) wanted - filled);
+            if (read == -1) {
+                break;
+            }
+            filled += read;
+            if (filled % frameSize == 0) {
+                break;
+            }
+        }
+        filled -= filled % frameSize;
+        if (filled == 0) {
+            remaining = 0;
+            return -1;
+        }
+        remaining -= filled;
+        int samples = filled / bytesPerSample;
+        for (int i = 0, j = 0; i < samples; ++i, j += bytesPerSample) {
+            buffer[offset + i] = toShort(scratch, j);
+        }
+        return samples;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+
+    private short toShort(@NonNull byte[] bytes, int index) {
+        switch (encoding) {
+            case ENCODING_PCM_8BIT:
+                return (short) (((bytes[index] & 0xFF) - 128) << 8);
+            case ENCODING_PCM_16BIT:
+                return (short) readShort(bytes, index);
+            case ENCODING_PCM_24BIT:
+            case ENCODING_PCM_32BIT:
+                return (short) (bytes[index + bytesPerSample - 1] << 8
+                        | (bytes[index + bytesPerSample - 2] & 0xFF));
+            case ENCODING_PCM_FLOAT: {
+                float value = Float.intBitsToFloat(readInt(bytes, index));
+                return (short) (Math.max(-1.0F, Math.min(1.0F, value)) * Short.MAX_VALUE);
+            }
+            default:
+                throw new IllegalStateException("Unknown encoding " + encoding);
+        }
+    }
+
+    private static int getBytesPerSample(int encoding) {
+        switch (encoding) {
+            case ENCODING_PCM_8BIT:
+                return 1;
+            case ENCODING_PCM_16BIT:
+                return 2;
+            case ENCODING_PCM_24BIT:
+                return 3;
+            case ENCODING_PCM_32BIT:
+            case ENCODING_PCM_FLOAT:
+                return 4;
+            default:
+                throw new IllegalArgumentException("Unknown encoding " + encoding);
+        }
+    }
+
+    private static int toEncoding(int format, int bitsPerSample) throws IOException {
+        if (format == WAVE_FORMAT_PCM) {
+            switch (bitsPerSample) {
+                case 8:
+                    return ENCODING_PCM_8BIT;
+                case 16:
+                    return ENCODING_PCM_16BIT;
+                case 24:
+                    return ENCODING_PCM_24BIT;
+                case 32:
+                    return ENCODING_PCM_32BIT;
+            }
+        } else if (format == WAVE_FORMAT_IEEE_FLOAT && bitsPerSample == 32) {
+            return ENCODING_PCM_FLOAT;
+        }
+        throw new IOException("Unsupported WAVE format " + format + " with " + bitsPerSample + " bits per sample");
+    }
+
+    private static boolean isChunk(@NonNull byte[] header, char a, char b, char c, char d) {
+        return header[0] == a && header[1] == b && header[2] == c && header[3] == d;
+    }
+
+    private static int readShort(@NonNull byte[] bytes, int index) {
+        return (bytes[index] & 0xFF) | (bytes[index + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(@NonNull byte[] bytes, int index) {
+        return (bytes[index] & 0xFF)
+                | (bytes[index + 1] & 0xFF) << 8
+                | (bytes[index + 2] & 0xFF) << 16
+                | bytes[index + 3] << 24;
+    }
+
+    private static void readFully(@NonNull InputStream stream, @NonNull byte[] bytes, int length) throws IOException {
+        int filled = 0;
+        while (filled < length) {
+            int read = stream.read(bytes, filled, length - filled);
+            if (read == -1) {
+                throw new EOFException();
+            }
+            filled += read;
+        }
+    }
+
+    private static void skipFully(@NonNull InputStream stream, long length) throws IOException {
+        while (length > 0) {
+            long skipped = stream.skip(length);
+            if (skipped <= 0) {
+                if (stream.read() == -1) {
+                    throw new EOFException();
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+}
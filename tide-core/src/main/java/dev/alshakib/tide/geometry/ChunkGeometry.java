@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.geometry;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Platform independent bar layout: where each chunk starts and how tall it is for a peak value.
+ * Chunk positions and line end points are cached and only recomputed when the chunk count or
+ * step changes, so laying out a frame does not allocate.
+ */
+public final class ChunkGeometry {
+    private int chunkWidth;
+    private int chunkSpacing;
+    private int chunkRadius;
+    private int chunkMinHeight;
+    private int chunkMaxHeight;
+
+    private float[] chunkLeft;
+    private float[] linePoints;
+    private int chunkLeftStepWidth;
+    private int chunkLeftSpacing;
+
+    public ChunkGeometry() {
+        this.chunkLeft = new float[0];
+        this.linePoints = new float[0];
+    }
+
+    public void set(int chunkWidth, int chunkSpacing, int chunkRadius, int chunkMinHeight, int chunkMaxHeight) {
+        this.chunkWidth = chunkWidth;
+        this.chunkSpacing = chunkSpacing;
+        this.chunkRadius = chunkRadius;
+        this.chunkMinHeight = chunkMinHeight;
+        this.chunkMaxHeight = chunkMaxHeight;
+    }
+
+    public int getChunkWidth() {
+        return chunkWidth;
+    }
+
+    public int getChunkSpacing() {
+        return chunkSpacing;
+    }
+
+    public int getChunkRadius() {
+        return chunkRadius;
+    }
+
+    public int getChunkMinHeight() {
+        return chunkMinHeight;
+    }
+
+    public int getChunkMaxHeight() {
+        return chunkMaxHeight;
+    }
+
+    /**
+     * Returns {@code true} if every bar is fully rounded, i.e. can be drawn as a line with round
+     * caps.
+     */
+    public boolean isFullyRounded() {
+        return 2 * chunkRadius >= chunkWidth && 2 * chunkMinHeight >= chunkWidth;
+    }
+
+    /**
+     * Returns half the height of the bar for {@code value}, growing from the minimum height as
+     * {@code factor} goes from 0 to 1.
+     */
+    public int getHalfHeight(byte value, float factor) {
+        int chunkHeight = (int) ((float) value / (float) Byte.MAX_VALUE * (chunkMaxHeight / 2.0F));
+        int clampedHeight = Math.max(chunkHeight, chunkMinHeight);
+        float heightDiff = (float) (clampedHeight - chunkMinHeight);
+        return chunkMinHeight + (int) (heightDiff * factor);
+    }
+
+    /**
+     * Returns the left edge of each of {@code count} chunks. The array is owned by this object.
+     */
+    @NonNull
+    public float[] getChunkLeft(int count) {
+        int stepWidth = chunkWidth + chunkSpacing;
+        if (chunkLeft.length == count && chunkLeftStepWidth == stepWidth && chunkLeftSpacing == chunkSpacing) {
+            return chunkLeft;
+        }
+        if (chunkLeft.length != count) {
+            chunkLeft = new float[count];
+            linePoints = new float[count * 4];
+        }
+        for (int i = 0; i < count; ++i) {
+            chunkLeft[i] = chunkSpacing / 2F + i * stepWidth;
+        }
+        chunkLeftStepWidth = stepWidth;
+        chunkLeftSpacing = chunkSpacing;
+        return chunkLeft;
+    }
+
+    /**
+     * Fills the vertical line through the middle of each chunk in {@code [from, to)}, four floats
+     * per chunk starting at {@code from * 4}, shortened by {@code inset} at both ends. The array
+     * is owned by this object and sized for {@code data.length} chunks.
+     */
+    @NonNull
+    public float[] getLinePoints(@NonNull byte[] data, int from, int to, int centerY, float factor, float inset) {
+        float[] left = getChunkLeft(data.length);
+        float halfWidth = chunkWidth / 2F;
+        float[] points = linePoints;
+        for (int i = from, j = from * 4; i < to; ++i, j += 4) {
+            int halfHeight = getHalfHeight(data[i], factor);
+            float x = left[i] + halfWidth;
+            points[j] = x;
+            points[j + 1] = centerY - halfHeight + inset;
+            points[j + 2] = x;
+            points[j + 3] = centerY + halfHeight - inset;
+        }
+        return points;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Largest-Triangle-Three-Buckets over the absolute peak of each bucket, with one selected point
+ * per chunk. The first point of the window stands in for the point selected before chunk 0, and
+ * the last chunk, which has no next chunk to average, aims at its own last bucket.
+ */
+final class LttbReducer implements SampleReducer {
+    private static final int CANDIDATES_PER_CHUNK = 8;
+
+    @Override
+    public int getMinBucketsPerChunk() {
+        return CANDIDATES_PER_CHUNK;
+    }
+
+    @Override
+    public void reduce(@NonNull PeakPyramid.Level level, double firstBucket, double bucketsPerChunk,
+                       @NonNull byte[] out, int offset, int chunkCount) {
+        int size = level.size;
+        int start = SampleReducer.getFirstBucket(firstBucket, bucketsPerChunk, 0);
+        double previousX = start;
+        double previousY = start < size ? getPeak(level, start) : 0;
+        for (int i = 0; i < chunkCount; ++i) {
+            int from = SampleReducer.getFirstBucket(firstBucket, bucketsPerChunk, i);
+            int to = SampleReducer.getEndBucket(firstBucket, bucketsPerChunk, i, size);
+            if (from >= to) {
+                out[offset + i] = 0;
+                continue;
+            }
+            int nextFrom = SampleReducer.getFirstBucket(firstBucket, bucketsPerChunk, i + 1);
+            int nextTo = SampleReducer.getEndBucket(firstBucket, bucketsPerChunk, i + 1, size);
+            double nextX;
+            double nextY;
+            if (i + 1 < chunkCount && nextFrom < nextTo) {
+                long sum = 0;
+                for (int j = nextFrom; j < nextTo; ++j) {
+                    sum += getPeak(level, j);
+                }
+                nextX = (nextFrom + nextTo - 1) / 2.0;
+                nextY = (double) sum / (nextTo - nextFrom);
+            } else {
+                nextX = to - 1;
+                nextY = getPeak(level, to - 1);
+            }
+            int selected = from;
+            double largestArea = -1.0;
+            for (int j = from; j < to; ++j) {
+                // Twice the triangle area; the factor does not change which one is largest
+                double area = Math.abs((previousX - nextX) * (getPeak(level, j) - previousY)
+                        - (previousX - j) * (nextY - previousY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    selected = j;
+                }
+            }
+            int peak = getPeak(level, selected);
+            out[offset + i] = PeakPyramid.toByte(peak);
+            previousX = selected;
+            previousY = peak;
+        }
+    }
+
+    private static int getPeak(@NonNull PeakPyramid.Level level, int index) {
+        return Math.max(-level.min[index], level.max[index]);
+    }
+}
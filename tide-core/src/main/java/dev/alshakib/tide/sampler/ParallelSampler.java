@@ -0,0 +1,244 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds a {@link PeakPyramid} from an in-memory source on a fork/join pool. Buckets are
+ * independent, so the source is split into bucket ranges that are reduced in parallel. The
+ * result, fingerprint included, is identical to feeding the same data to a
+ * {@link StreamingSampler} with the same bucket capacity. Decoded sources of unknown length go
+ * through {@link PipelinedSampler} instead.
+ */
+public final class ParallelSampler {
+    /**
+     * Sources with fewer frames than this are reduced on the calling thread; below it the cost
+     * of forking outweighs the work.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 18;
+
+    private static final int LEAF_SAMPLES = 1 << 15;
+
+    private static ForkJoinPool defaultPool;
+
+    private ParallelSampler() { }
+
+    @NonNull
+    public static synchronized ForkJoinPool getDefaultPool() {
+        if (defaultPool == null) {
+            defaultPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return defaultPool;
+    }
+
+    @NonNull
+    public static PeakPyramid sample(@NonNull short[] samples, int offset, int length, int channelCount) {
+        return sample(getDefaultPool(), samples, offset, length, channelCount,
+                StreamingSampler.DEFAULT_BUCKET_CAPACITY, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    @NonNull
+    public static PeakPyramid sample(@NonNull byte[] bytes, int offset, int length) {
+        return sample(getDefaultPool(), bytes, offset, length,
+                StreamingSampler.DEFAULT_BUCKET_CAPACITY, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    @NonNull
+    public static PeakPyramid sample(@NonNull ForkJoinPool pool, @NonNull short[] samples, int offset, int length,
+                                     int channelCount, int bucketCapacity, int parallelThreshold) {
+        long frameCount = length / channelCount;
+        if (frameCount < parallelThreshold) {
+            StreamingSampler sampler = new StreamingSampler(bucketCapacity);
+            sampler.add(samples, offset, length, channelCount);
+            return sampler.build();
+        }
+        Reduction reduction = new Reduction(frameCount, channelCount, bucketCapacity);
+        pool.invoke(new ShortTask(reduction, samples, offset, 0, reduction.bucketCount));
+        return reduction.build();
+    }
+
+    @NonNull
+    public static PeakPyramid sample(@NonNull ForkJoinPool pool, @NonNull byte[] bytes, int offset, int length,
+                                     int bucketCapacity, int parallelThreshold) {
+        if (length < parallelThreshold) {
+            StreamingSampler sampler = new StreamingSampler(bucketCapacity);
+            sampler.add(bytes, offset, length);
+            return sampler.build();
+        }
+        Reduction reduction = new Reduction(length, 1, bucketCapacity);
+        pool.invoke(new ByteTask(reduction, bytes, offset, 0, reduction.bucketCount));
+        return reduction.build();
+    }
+
+    private static final class Reduction {
+        final long frameCount;
+        final int channelCount;
+        final long samplesPerBucket;
+        final int bucketCount;
+        final short[] min;
+        final short[] max;
+        final long[] squares;
+        final long[] hashes;
+
+        Reduction(long frameCount, int channelCount, int bucketCapacity) {
+            this.frameCount = frameCount;
+            this.channelCount = channelCount;
+            this.samplesPerBucket = StreamingSampler.getSamplesPerBucket(frameCount, bucketCapacity);
+            this.bucketCount = (int) ((frameCount + samplesPerBucket - 1) / samplesPerBucket);
+            this.min = new short[bucketCount];
+            this.max = new short[bucketCount];
+            this.squares = new long[bucketCount];
+            this.hashes = new long[bucketCount];
+        }
+
+        long getFirstFrame(int bucket) {
+            return bucket * samplesPerBucket;
+        }
+
+        long getFrameCount(int bucket) {
+            return Math.min(samplesPerBucket, frameCount - getFirstFrame(bucket));
+        }
+
+        boolean isLeaf(int from, int to) {
+            return (to - from) * samplesPerBucket * channelCount <= LEAF_SAMPLES || to - from == 1;
+        }
+
+        @NonNull
+        PeakPyramid build() {
+            short[] rms = new short[bucketCount];
+            long fingerprint = 0;
+            long fullBucketPower = StreamingSampler.hashPower(samplesPerBucket * channelCount);
+            for (int i = 0; i < bucketCount; ++i) {
+                long frames = getFrameCount(i);
+                rms[i] = StreamingSampler.toRms(squares[i], frames * channelCount);
+                long power = frames == samplesPerBucket
+                        ? fullBucketPower : StreamingSampler.hashPower(frames * channelCount);
+                fingerprint = fingerprint * power + hashes[i];
+            }
+            return new PeakPyramid(min, max, rms, bucketCount, samplesPerBucket, frameCount, fingerprint);
+        }
+    }
+
+    private static final class ShortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Reduction reduction;
+        private final short[] samples;
+        private final int offset;
+        private final int from;
+        private final int to;
+
+        ShortTask(@NonNull Reduction reduction, @NonNull short[] samples, int offset, int from, int to) {
+            this.reduction = reduction;
+            this.samples = samples;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (!reduction.isLeaf(from, to)) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ShortTask(reduction, samples, offset, from, middle),
+                        new ShortTask(reduction, samples, offset, middle, to));
+                return;
+            }
+            int channelCount = reduction.channelCount;
+            for (int bucket = from; bucket < to; ++bucket) {
+                int start = offset + (int) (reduction.getFirstFrame(bucket) * channelCount);
+                int end = start + (int) (reduction.getFrameCount(bucket) * channelCount);
+                int bucketMin = Short.MAX_VALUE;
+                int bucketMax = Short.MIN_VALUE;
+                long bucketSquares = 0;
+                long hash = 0;
+                for (int i = start; i < end; ++i) {
+                    int sample = samples[i];
+                    hash = hash * StreamingSampler.HASH_MULTIPLIER + (sample & 0xFFFF) + 1;
+                    bucketMin = Math.min(bucketMin, sample);
+                    bucketMax = Math.max(bucketMax, sample);
+                    bucketSquares += sample * sample;
+                }
+                reduction.min[bucket] = (short) bucketMin;
+                reduction.max[bucket] = (short) bucketMax;
+                reduction.squares[bucket] = bucketSquares;
+                reduction.hashes[bucket] = hash;
+            }
+        }
+    }
+
+    private static final class ByteTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Reduction reduction;
+        private final byte[] bytes;
+        private final int offset;
+        private final int from;
+        private final int to;
+
+        ByteTask(@NonNull Reduction reduction, @NonNull byte[] bytes, int offset, int from, int to) {
+            this.reduction = reduction;
+            this.bytes = bytes;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (!reduction.isLeaf(from, to)) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ByteTask(reduction, bytes, offset, from, middle),
+                        new ByteTask(reduction, bytes, offset, middle, to));
+                return;
+            }
+            for (int bucket = from; bucket < to; ++bucket) {
+                int start = offset + (int) reduction.getFirstFrame(bucket);
+                int end = start + (int) reduction.getFrameCount(bucket);
+                int bucketMin = Short.MAX_VALUE;
+                int bucketMax = Short.MIN_VALUE;
+                long bucketSquares = 0;
+                long hash = 0;
+                for (int i = start; i < end; ++i) {
+                    hash = hash * StreamingSampler.HASH_MULTIPLIER + (bytes[i] & 0xFF) + 1;
+                    int sample = bytes[i] << StreamingSampler.BYTE_SHIFT;
+                    bucketMin = Math.min(bucketMin, sample);
+                    bucketMax = Math.max(bucketMax, sample);
+                    bucketSquares += sample * sample;
+                }
+                reduction.min[bucket] = (short) bucketMin;
+                reduction.max[bucket] = (short) bucketMax;
+                reduction.squares[bucket] = bucketSquares;
+                reduction.hashes[bucket] = hash;
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Immutable min/max/RMS summary of a source at power-of-two decimation levels. Level 0 holds
+ * the finest buckets and every following level merges pairs of the level below, so any chunk
+ * count can be answered from the nearest level without touching the source again.
+ *
+ * <p>A pyramid built from split multi-channel input also carries one lane per channel, each a
+ * pyramid of its own over the same buckets; the top-level values are the mix of all lanes.
+ */
+public final class PeakPyramid {
+    private static final int BYTE_SHIFT = 8;
+
+    private final Level[] levels;
+    private final long frameCount;
+    private final long fingerprint;
+    private final PeakPyramid[] lanes;
+
+    PeakPyramid(@NonNull short[] min, @NonNull short[] max, @NonNull short[] rms,
+                int size, long samplesPerBucket, long frameCount, long fingerprint) {
+        this(min, max, rms, size, samplesPerBucket, frameCount, fingerprint, null);
+    }
+
+    PeakPyramid(@NonNull short[] min, @NonNull short[] max, @NonNull short[] rms,
+                int size, long samplesPerBucket, long frameCount, long fingerprint,
+                @Nullable PeakPyramid[] lanes) {
+        int levelCount = 1;
+        for (int n = size; n > 1; n = (n + 1) / 2) {
+            ++levelCount;
+        }
+        this.levels = new Level[levelCount];
+        this.levels[0] = new Level(copyOf(min, size), copyOf(max, size), copyOf(rms, size), samplesPerBucket);
+        for (int i = 1; i < levelCount; ++i) {
+            this.levels[i] = levels[i - 1].decimate();
+        }
+        this.frameCount = frameCount;
+        this.fingerprint = fingerprint;
+        this.lanes = lanes != null ? lanes : new PeakPyramid[0];
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns a 64-bit hash of every sample the pyramid was built from. Two pyramids with the
+     * same fingerprint summarize the same content.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    @NonNull
+    public Level getLevel(int level) {
+        return levels[level];
+    }
+
+    /**
+     * Returns the number of per-channel lanes, or 0 if the pyramid only holds the mix.
+     */
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    @NonNull
+    public PeakPyramid getLane(int lane) {
+        return lanes[lane];
+    }
+
+    public long getByteCount() {
+        long bytes = 0;
+        for (Level level : levels) {
+            bytes += level.size * 3L * Short.BYTES;
+        }
+        for (PeakPyramid lane : lanes) {
+            bytes += lane.getByteCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the coarsest level that still has at least one bucket per chunk, or level 0
+     * when the source is shorter than {@code chunkCount} buckets.
+     */
+    @NonNull
+    public Level getNearestLevel(int chunkCount) {
+        for (int i = levels.length - 1; i > 0; --i) {
+            if (levels[i].size >= chunkCount) {
+                return levels[i];
+            }
+        }
+        return levels[0];
+    }
+
+    @NonNull
+    public byte[] getPeaks(int chunkCount) {
+        if (chunkCount <= 1) {
+            return new byte[0];
+        }
+        byte[] peaks = new byte[chunkCount];
+        getPeaks(peaks, 0, chunkCount);
+        return peaks;
+    }
+
+    public void getPeaks(@NonNull byte[] out, int offset, int chunkCount) {
+        Level level = getNearestLevel(chunkCount);
+        int size = level.size;
+        if (size == 0) {
+            for (int i = 0; i < chunkCount; ++i) {
+                out[offset + i] = 0;
+            }
+            return;
+        }
+        for (int i = 0; i < chunkCount; ++i) {
+            int from = (int) ((long) i * size / chunkCount);
+            int to = Math.max(from + 1, (int) ((long) (i + 1) * size / chunkCount));
+            int peak = 0;
+            for (int j = from; j < to; ++j) {
+                peak = Math.max(peak, Math.max(-level.min[j], level.max[j]));
+            }
+            out[offset + i] = (byte) Math.min(Byte.MAX_VALUE, peak >> BYTE_SHIFT);
+        }
+    }
+
+    /**
+     * Fills {@code chunkCount} peaks covering only {@code [start, end)} of the source, both given
+     * as fractions of its length; chunks past the end of the source are zero. The level is picked
+     * from the width of the window rather than of the whole source, so the cost depends on
+     * {@code chunkCount} alone and not on how long the source is or how far it is zoomed in.
+     */
+    public void getPeaks(@NonNull byte[] out, int offset, int chunkCount, double start, double end) {
+        getPeaks(out, offset, chunkCount, start, end, SampleReducer.MAX_ABS);
+    }
+
+    /**
+     * Same as {@link #getPeaks(byte[], int, int, double, double)}, with each chunk reduced by
+     * {@code reducer} instead of to its largest peak.
+     */
+    public void getPeaks(@NonNull byte[] out, int offset, int chunkCount, double start, double end,
+                         @NonNull SampleReducer reducer) {
+        start = Math.max(0.0, start);
+        end = Math.max(start, end);
+        double span = end - start;
+        Level level = getWindowLevel(span, (long) chunkCount * reducer.getMinBucketsPerChunk());
+        if (level.size == 0 || span == 0.0) {
+            for (int i = 0; i < chunkCount; ++i) {
+                out[offset + i] = 0;
+            }
+            return;
+        }
+        reducer.reduce(level, start * level.size, span * level.size / chunkCount, out, offset, chunkCount);
+    }
+
+    /**
+     * Same as {@link #getPeaks(byte[], int, int, double, double)}, and if {@code rms} is not
+     * {@code null} also fills it with the RMS of each chunk, taken in the same pass over the
+     * buckets. Both arrays are written from {@code offset} on.
+     */
+    public void getPeaks(@NonNull byte[] peaks, @Nullable byte[] rms, int offset, int chunkCount,
+                         double start, double end) {
+        if (rms == null) {
+            getPeaks(peaks, offset, chunkCount, start, end, SampleReducer.MAX_ABS);
+            return;
+        }
+        start = Math.max(0.0, start);
+        end = Math.max(start, end);
+        double span = end - start;
+        Level level = getWindowLevel(span, chunkCount);
+        int size = level.size;
+        if (size == 0 || span == 0.0) {
+            for (int i = 0; i < chunkCount; ++i) {
+                peaks[offset + i] = 0;
+                rms[offset + i] = 0;
+            }
+            return;
+        }
+        double first = start * size;
+        double bucketsPerChunk = span * size / chunkCount;
+        for (int i = 0; i < chunkCount; ++i) {
+            int from = SampleReducer.getFirstBucket(first, bucketsPerChunk, i);
+            int to = SampleReducer.getEndBucket(first, bucketsPerChunk, i, size);
+            int peak = 0;
+            long squares = 0;
+            for (int j = from; j < to; ++j) {
+                peak = Math.max(peak, Math.max(-level.min[j], level.max[j]));
+                squares += level.rms[j] * level.rms[j];
+            }
+            peaks[offset + i] = toByte(peak);
+            rms[offset + i] = toByte(to > from ? (int) Math.sqrt((double) squares / (to - from)) : 0);
+        }
+    }
+
+    // The coarsest level that still has bucketCount buckets inside a window span of the source
+    @NonNull
+    private Level getWindowLevel(double span, long bucketCount) {
+        for (int i = levels.length - 1; i > 0; --i) {
+            if (levels[i].size * span >= bucketCount) {
+                return levels[i];
+            }
+        }
+        return levels[0];
+    }
+
+    static byte toByte(int amplitude) {
+        return (byte) Math.min(Byte.MAX_VALUE, amplitude >> BYTE_SHIFT);
+    }
+
+    static short mergeRms(short a, short b) {
+        return (short) Math.sqrt(((double) a * a + (double) b * b) / 2.0);
+    }
+
+    @NonNull
+    private static short[] copyOf(@NonNull short[] values, int size) {
+        short[] copy = new short[size];
+        System.arraycopy(values, 0, copy, 0, size);
+        return copy;
+    }
+
+    public static final class Level {
+        final short[] min;
+        final short[] max;
+        final short[] rms;
+        final int size;
+        private final long samplesPerBucket;
+
+        Level(@NonNull short[] min, @NonNull short[] max, @NonNull short[] rms, long samplesPerBucket) {
+            this.min = min;
+            this.max = max;
+            this.rms = rms;
+            this.size = min.length;
+            this.samplesPerBucket = samplesPerBucket;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getSamplesPerBucket() {
+            return samplesPerBucket;
+        }
+
+        public short getMin(int index) {
+            return min[index];
+        }
+
+        public short getMax(int index) {
+            return max[index];
+        }
+
+        public short getRms(int index) {
+            return rms[index];
+        }
+
+        @NonNull
+        private Level decimate() {
+            int half = (size + 1) / 2;
+            short[] decimatedMin = new short[half];
+            short[] decimatedMax = new short[half];
+            short[] decimatedRms = new short[half];
+            for (int i = 0; i < half; ++i) {
+                int a = 2 * i;
+                int b = Math.min(a + 1, size - 1);
+                decimatedMin[i] = (short) Math.min(min[a], min[b]);
+                decimatedMax[i] = (short) Math.max(max[a], max[b]);
+                decimatedRms[i] = mergeRms(rms[a], rms[b]);
+            }
+            return new Level(decimatedMin, decimatedMax, decimatedRms, samplesPerBucket * 2);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Versioned binary file format for {@link PeakPyramid}. Only level 0 is stored, the coarser
+ * levels are rebuilt on read. All values are little-endian.
+ *
+ * <pre>
+ * int32   magic ("TIDE")
+ * int32   version
+ * int32   tag length, followed by the UTF-8 tag
+ * int64   frame count
+ * int64   content fingerprint
+ * int64   samples per bucket
+ * int32   bucket count (n)
+ * int16[n] min, int16[n] max, int16[n] rms
+ * int32   lane count (m)
+ * m times: int16[n] min, int16[n] max, int16[n] rms
+ * </pre>
+ */
+public final class PeaksFile {
+    public static final int MAGIC = 0x45444954;
+    public static final int VERSION = 4;
+    public static final String EXTENSION = ".tide";
+
+    // frame count, fingerprint and samples per bucket, then the bucket count
+    private static final int LEVEL_HEADER_SIZE = 3 * Long.BYTES + Integer.BYTES;
+
+    private PeaksFile() { }
+
+    public static void write(@NonNull File file, @NonNull PeakPyramid pyramid, @NonNull String tag) throws IOException {
+        PeakPyramid.Level level = pyramid.getLevel(0);
+        byte[] tagBytes = tag.getBytes(StandardCharsets.UTF_8);
+        int size = level.getSize();
+        int laneCount = pyramid.getLaneCount();
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4 + tagBytes.length + 8 + 8 + 8 + 4
+                + (1 + laneCount) * size * 3 * Short.BYTES + 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(tagBytes.length);
+        buffer.put(tagBytes);
+        buffer.putLong(pyramid.getFrameCount());
+        buffer.putLong(pyramid.getFingerprint());
+        buffer.putLong(level.getSamplesPerBucket());
+        buffer.putInt(size);
+        putLevel(buffer, level);
+        buffer.putInt(laneCount);
+        for (int i = 0; i < laneCount; ++i) {
+            putLevel(buffer, pyramid.getLane(i).getLevel(0));
+        }
+        buffer.rewind();
+        File temp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile output = new RandomAccessFile(temp, "rw")) {
+            output.setLength(0);
+            FileChannel channel = output.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temp.delete();
+            throw new IOException("Unable to move " + temp + " to " + file);
+        }
+    }
+
+    /**
+     * Maps {@code file} and decodes it. Returns {@code null} when the file is from another
+     * format version or, if {@code tag} is not {@code null}, when it was written for another tag.
+     * A truncated or otherwise malformed file is reported as an {@link IOException}, never as a
+     * runtime exception, so callers such as a disk cache can drop it and decode the source again.
+     */
+    @Nullable
+    public static PeakPyramid read(@NonNull File file, @Nullable String tag) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return decode(buffer, file, tag);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted peaks file: " + file, e);
+        }
+    }
+
+    @Nullable
+    private static PeakPyramid decode(@NonNull ByteBuffer buffer, @NonNull File file,
+                                      @Nullable String tag) throws IOException {
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a peaks file: " + file);
+        }
+        if (buffer.getInt() != VERSION) {
+            return null;
+        }
+        int tagLength = buffer.getInt();
+        if (tagLength < 0 || tagLength > buffer.remaining()) {
+            throw new IOException("Corrupted peaks file: " + file);
+        }
+        byte[] tagBytes = new byte[tagLength];
+        buffer.get(tagBytes);
+        if (tag != null && !tag.equals(new String(tagBytes, StandardCharsets.UTF_8))) {
+            return null;
+        }
+        if (buffer.remaining() < LEVEL_HEADER_SIZE) {
+            throw new IOException("Corrupted peaks file: " + file);
+        }
+        long frameCount = buffer.getLong();
+        long fingerprint = buffer.getLong();
+        long samplesPerBucket = buffer.getLong();
+        int size = buffer.getInt();
+        long levelBytes = (long) size * 3 * Short.BYTES;
+        if (size < 0 || levelBytes + 4 > buffer.remaining()) {
+            throw new IOException("Corrupted peaks file: " + file);
+        }
+        short[][] level = getLevel(buffer, size);
+        int laneCount = buffer.getInt();
+        if (laneCount < 0 || laneCount * levelBytes != buffer.remaining()) {
+            throw new IOException("Corrupted peaks file: " + file);
+        }
+        PeakPyramid[] lanes = new PeakPyramid[laneCount];
+        for (int i = 0; i < laneCount; ++i) {
+            short[][] lane = getLevel(buffer, size);
+            lanes[i] = new PeakPyramid(lane[0], lane[1], lane[2], size, samplesPerBucket, frameCount,
+                    fingerprint);
+        }
+        return new PeakPyramid(level[0], level[1], level[2], size, samplesPerBucket, frameCount,
+                fingerprint, lanes);
+    }
+
+    private static void putLevel(@NonNull ByteBuffer buffer, @NonNull PeakPyramid.Level level) {
+        int size = level.getSize();
+        buffer.asShortBuffer().put(level.min, 0, size);
+        buffer.position(buffer.position() + size * Short.BYTES);
+        buffer.asShortBuffer().put(level.max, 0, size);
+        buffer.position(buffer.position() + size * Short.BYTES);
+        buffer.asShortBuffer().put(level.rms, 0, size);
+        buffer.position(buffer.position() + size * Short.BYTES);
+    }
+
+    // Returns min, max and rms, in that order
+    @NonNull
+    private static short[][] getLevel(@NonNull ByteBuffer buffer, int size) {
+        short[][] level = new short[3][size];
+        for (short[] values : level) {
+            buffer.asShortBuffer().get(values);
+            buffer.position(buffer.position() + size * Short.BYTES);
+        }
+        return level;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import dev.alshakib.tide.decoder.AudioDecoder;
+
+/**
+ * Feeds decoded PCM of unknown length to a {@link StreamingSampler} on a fork/join pool while
+ * the calling thread decodes the next buffer, so decoding and sampling overlap. The two
+ * buffers are swapped on every {@link #submit}, and the result is identical to adding the same
+ * buffers to the sampler directly.
+ *
+ * <p>Unlike {@link ParallelSampler}, the bucket layout is not known up front, so the sampler
+ * itself still runs on one thread at a time.
+ */
+public final class PipelinedSampler {
+    private final StreamingSampler sampler;
+    private final ForkJoinPool pool;
+    private final SampleTask task;
+
+    private short[] buffer;
+    private short[] spareBuffer;
+    private boolean pending;
+
+    public PipelinedSampler(@NonNull StreamingSampler sampler) {
+        this(sampler, ParallelSampler.getDefaultPool(),
+                new short[StreamingSampler.DEFAULT_BUFFER_SIZE], new short[StreamingSampler.DEFAULT_BUFFER_SIZE]);
+    }
+
+    /**
+     * Creates a pipeline that alternates between two caller-owned buffers of the same length.
+     */
+    public PipelinedSampler(@NonNull StreamingSampler sampler, @NonNull ForkJoinPool pool,
+                            @NonNull short[] buffer, @NonNull short[] spareBuffer) {
+        if (buffer == spareBuffer || buffer.length != spareBuffer.length) {
+            throw new IllegalArgumentException("buffers must be distinct and of the same length");
+        }
+        this.sampler = sampler;
+        this.pool = pool;
+        this.task = new SampleTask(sampler);
+        this.buffer = buffer;
+        this.spareBuffer = spareBuffer;
+    }
+
+    /**
+     * Returns the buffer to fill before the next {@link #submit}. It is not read by the pool
+     * until then.
+     */
+    @NonNull
+    public short[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Hands the first {@code length} samples of {@link #getBuffer()} to the pool, once the
+     * previous buffer has been sampled.
+     */
+    public void submit(int length, int channelCount) {
+        join();
+        task.reinitialize();
+        task.set(buffer, length, channelCount);
+        pending = true;
+        pool.execute(task);
+        short[] filled = buffer;
+        buffer = spareBuffer;
+        spareBuffer = filled;
+    }
+
+    public void add(@NonNull AudioDecoder decoder) throws IOException {
+        int read;
+        while ((read = decoder.read(buffer, 0, buffer.length)) != -1) {
+            submit(read, decoder.getChannelCount());
+        }
+    }
+
+    /**
+     * Waits for the last submitted buffer and returns the summary of everything submitted.
+     */
+    @NonNull
+    public PeakPyramid build() {
+        join();
+        return sampler.build();
+    }
+
+    /**
+     * Returns the time the pool spent sampling, in nanoseconds, up to the last completed buffer.
+     */
+    public long getSampleNanos() {
+        join();
+        return task.sampleNanos;
+    }
+
+    /**
+     * Waits until the last submitted buffer has been sampled, after which both buffers are free.
+     */
+    public void join() {
+        if (pending) {
+            pending = false;
+            task.join();
+        }
+    }
+
+    private static final class SampleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient StreamingSampler sampler;
+        private short[] samples;
+        private int length;
+        private int channelCount;
+        private long sampleNanos;
+
+        SampleTask(@NonNull StreamingSampler sampler) {
+            this.sampler = sampler;
+        }
+
+        void set(@NonNull short[] samples, int length, int channelCount) {
+            this.samples = samples;
+            this.length = length;
+            this.channelCount = channelCount;
+        }
+
+        @Override
+        protected void compute() {
+            long startNanos = System.nanoTime();
+            sampler.add(samples, 0, length, channelCount);
+            sampleNanos += System.nanoTime() - startNanos;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Reduces the buckets of a {@link PeakPyramid.Level} to one 8-bit amplitude per chunk.
+ * {@link PeakPyramid} picks the level and the window, and a reducer only walks the buckets of
+ * each chunk, writing its result into the caller's array. Reducers run on every layout, resize
+ * and pan, so they must not allocate and must be safe to call from several threads at once.
+ *
+ * <p>Chunk {@code i} covers the buckets from {@link #getFirstBucket} up to
+ * {@link #getEndBucket}, so a chunk always has at least one bucket unless it lies past the end
+ * of the source. The level is the coarsest one with at least {@link #getMinBucketsPerChunk()}
+ * buckets per chunk, so each chunk spans fewer than twice that many buckets and the cost below
+ * is per chunk, independent of the length of the source.
+ */
+public interface SampleReducer {
+    /**
+     * Largest absolute peak of each chunk. Exact at any level, since the pyramid keeps the
+     * envelope of every bucket. One pass over the buckets of each chunk.
+     */
+    SampleReducer MAX_ABS = new MaxAbsReducer();
+
+    /**
+     * Root mean square of each chunk, from the RMS of its buckets. One pass over the buckets of
+     * each chunk; reads as loudness rather than as the outline of the signal.
+     */
+    SampleReducer RMS = new RmsReducer();
+
+    /**
+     * Mean absolute peak of at most five evenly spaced buckets per chunk. Constant work per
+     * chunk however many buckets it spans; meant for small thumbnails where accuracy matters
+     * less than cost.
+     */
+    SampleReducer STRIDED_AVERAGE = new StridedAverageReducer();
+
+    /**
+     * Largest-Triangle-Three-Buckets: keeps, for each chunk, the bucket that forms the largest
+     * triangle with the one kept for the previous chunk and the average of the next chunk. This
+     * preserves the visual shape of the signal better than averaging. It asks for a finer level
+     * so it has candidates to pick from, and visits each bucket about twice.
+     */
+    SampleReducer LTTB = new LttbReducer();
+
+    /**
+     * Writes {@code chunkCount} amplitudes into {@code out} from {@code offset} on, chunk
+     * {@code i} covering the buckets of {@code level} starting at
+     * {@code firstBucket + i * bucketsPerChunk}.
+     */
+    void reduce(@NonNull PeakPyramid.Level level, double firstBucket, double bucketsPerChunk,
+                @NonNull byte[] out, int offset, int chunkCount);
+
+    /**
+     * Returns how many buckets each chunk should span at least. Finer levels cost more to
+     * reduce, so only reducers that select among buckets need more than one.
+     */
+    default int getMinBucketsPerChunk() {
+        return 1;
+    }
+
+    static int getFirstBucket(double firstBucket, double bucketsPerChunk, int chunk) {
+        return (int) (firstBucket + chunk * bucketsPerChunk);
+    }
+
+    static int getEndBucket(double firstBucket, double bucketsPerChunk, int chunk, int size) {
+        int from = getFirstBucket(firstBucket, bucketsPerChunk, chunk);
+        return Math.min(size, Math.max(from + 1, getFirstBucket(firstBucket, bucketsPerChunk, chunk + 1)));
+    }
+}
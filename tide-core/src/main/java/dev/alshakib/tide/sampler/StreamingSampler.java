@@ -0,0 +1,346 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+
+import dev.alshakib.tide.decoder.AudioDecoder;
+
+/**
+ * Builds a {@link PeakPyramid} from a stream of unknown length using a fixed amount of memory.
+ * Incoming PCM frames are folded into a bounded set of min/max/RMS buckets, and whenever the
+ * buckets fill up, neighbours are merged pairwise and the bucket size doubles.
+ *
+ * <p>With {@code splitChannels} set, multi-channel input is also summarized per channel in the
+ * same pass: every channel folds into its own primitive accumulators, and the mixed buckets are
+ * derived from those whenever a bucket is committed. The result is available from
+ * {@link PeakPyramid#getLane(int)}.
+ */
+public class StreamingSampler {
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    public static final int DEFAULT_BUCKET_CAPACITY = 8192;
+
+    static final int BYTE_SHIFT = 8;
+    static final long HASH_MULTIPLIER = 0x100000001b3L;
+
+    private final short[] bucketMin;
+    private final short[] bucketMax;
+    private final long[] bucketSquares;
+    private final boolean splitChannels;
+
+    // Per channel, only allocated once split input with more than one channel arrives
+    private short[][] laneMin;
+    private short[][] laneMax;
+    private long[][] laneSquares;
+    private int[] pendingLaneMin;
+    private int[] pendingLaneMax;
+    private long[] pendingLaneSquares;
+
+    private int bucketCount;
+    private int channelCount;
+    private long samplesPerBucket;
+    private int pendingMin;
+    private int pendingMax;
+    private long pendingSquares;
+    private long pendingCount;
+    private long totalCount;
+    private long fingerprint;
+
+    public StreamingSampler() {
+        this(DEFAULT_BUCKET_CAPACITY);
+    }
+
+    public StreamingSampler(int bucketCapacity) {
+        this(bucketCapacity, false);
+    }
+
+    public StreamingSampler(int bucketCapacity, boolean splitChannels) {
+        if (bucketCapacity < 2 || bucketCapacity % 2 != 0) {
+            throw new IllegalArgumentException("bucketCapacity must be an even number >= 2");
+        }
+        this.bucketMin = new short[bucketCapacity];
+        this.bucketMax = new short[bucketCapacity];
+        this.bucketSquares = new long[bucketCapacity];
+        this.splitChannels = splitChannels;
+        this.channelCount = 1;
+        this.samplesPerBucket = 1;
+        resetPending();
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Returns a polynomial rolling hash of every sample seen so far. Unlike a byte-serial hash
+     * it can be computed over independent ranges and combined, which lets
+     * {@link ParallelSampler} produce the same fingerprint.
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public void add(@NonNull AudioDecoder decoder, @NonNull short[] buffer) throws IOException {
+        int read;
+        while ((read = decoder.read(buffer, 0, buffer.length)) != -1) {
+            add(buffer, 0, read, decoder.getChannelCount());
+        }
+    }
+
+    public void add(@NonNull short[] samples, int offset, int length, int channelCount) {
+        this.channelCount = channelCount;
+        int end = offset + length - length % channelCount;
+        if (splitChannels && channelCount > 1) {
+            addSplit(samples, offset, end, channelCount);
+            return;
+        }
+        long hash = fingerprint;
+        for (int i = offset; i < end; i += channelCount) {
+            int frameMin = Short.MAX_VALUE;
+            int frameMax = Short.MIN_VALUE;
+            long frameSquares = 0;
+            for (int c = 0; c < channelCount; ++c) {
+                int sample = samples[i + c];
+                hash = hash * HASH_MULTIPLIER + (sample & 0xFFFF) + 1;
+                frameMin = Math.min(frameMin, sample);
+                frameMax = Math.max(frameMax, sample);
+                frameSquares += sample * sample;
+            }
+            addFrame(frameMin, frameMax, frameSquares);
+        }
+        fingerprint = hash;
+        totalCount += (end - offset) / channelCount;
+    }
+
+    // Same frame walk and hash as the mixed path, but each channel keeps its own accumulators
+    private void addSplit(@NonNull short[] samples, int offset, int end, int channelCount) {
+        if (laneMin == null) {
+            allocateLanes(channelCount);
+        } else if (laneMin.length != channelCount) {
+            throw new IllegalArgumentException("Channel count changed from " + laneMin.length
+                    + " to " + channelCount);
+        }
+        int[] minimums = pendingLaneMin;
+        int[] maximums = pendingLaneMax;
+        long[] squares = pendingLaneSquares;
+        long hash = fingerprint;
+        for (int i = offset; i < end; i += channelCount) {
+            for (int c = 0; c < channelCount; ++c) {
+                int sample = samples[i + c];
+                hash = hash * HASH_MULTIPLIER + (sample & 0xFFFF) + 1;
+                minimums[c] = Math.min(minimums[c], sample);
+                maximums[c] = Math.max(maximums[c], sample);
+                squares[c] += sample * sample;
+            }
+            if (++pendingCount == samplesPerBucket) {
+                commitPending();
+            }
+        }
+        fingerprint = hash;
+        totalCount += (end - offset) / channelCount;
+    }
+
+    private void allocateLanes(int channelCount) {
+        if (totalCount > 0) {
+            throw new IllegalArgumentException("Channel count changed from 1 to " + channelCount);
+        }
+        int capacity = bucketMin.length;
+        laneMin = new short[channelCount][capacity];
+        laneMax = new short[channelCount][capacity];
+        laneSquares = new long[channelCount][capacity];
+        pendingLaneMin = new int[channelCount];
+        pendingLaneMax = new int[channelCount];
+        pendingLaneSquares = new long[channelCount];
+        resetPending();
+    }
+
+    public void add(@NonNull byte[] bytes, int offset, int length) {
+        this.channelCount = 1;
+        int end = offset + length;
+        long hash = fingerprint;
+        for (int i = offset; i < end; ++i) {
+            hash = hash * HASH_MULTIPLIER + (bytes[i] & 0xFF) + 1;
+            int sample = bytes[i] << BYTE_SHIFT;
+            addFrame(sample, sample, sample * sample);
+        }
+        fingerprint = hash;
+        totalCount += length;
+    }
+
+    @NonNull
+    public PeakPyramid build() {
+        int size = bucketCount + (pendingCount > 0 ? 1 : 0);
+        if (laneMin != null) {
+            foldPendingLanes();
+        }
+        short[] rms = new short[size];
+        for (int i = 0; i < bucketCount; ++i) {
+            rms[i] = toRms(bucketSquares[i], samplesPerBucket * channelCount);
+        }
+        if (pendingCount > 0) {
+            bucketMin[bucketCount] = (short) pendingMin;
+            bucketMax[bucketCount] = (short) pendingMax;
+            rms[bucketCount] = toRms(pendingSquares, pendingCount * channelCount);
+        }
+        PeakPyramid[] lanes = laneMin != null ? buildLanes(size) : null;
+        return new PeakPyramid(bucketMin, bucketMax, rms, size, samplesPerBucket, totalCount, fingerprint, lanes);
+    }
+
+    @NonNull
+    private PeakPyramid[] buildLanes(int size) {
+        PeakPyramid[] lanes = new PeakPyramid[laneMin.length];
+        for (int c = 0; c < lanes.length; ++c) {
+            short[] rms = new short[size];
+            for (int i = 0; i < bucketCount; ++i) {
+                rms[i] = toRms(laneSquares[c][i], samplesPerBucket);
+            }
+            if (pendingCount > 0) {
+                laneMin[c][bucketCount] = (short) pendingLaneMin[c];
+                laneMax[c][bucketCount] = (short) pendingLaneMax[c];
+                rms[bucketCount] = toRms(pendingLaneSquares[c], pendingCount);
+            }
+            lanes[c] = new PeakPyramid(laneMin[c], laneMax[c], rms, size, samplesPerBucket, totalCount,
+                    fingerprint, null);
+        }
+        return lanes;
+    }
+
+    /**
+     * Returns the bucket size this sampler settles on after {@code frameCount} frames: the
+     * smallest power of two that fits all full buckets below {@code bucketCapacity}.
+     */
+    static long getSamplesPerBucket(long frameCount, int bucketCapacity) {
+        long samplesPerBucket = 1;
+        while (frameCount / samplesPerBucket >= bucketCapacity) {
+            samplesPerBucket *= 2;
+        }
+        return samplesPerBucket;
+    }
+
+    static short toRms(long squares, long samples) {
+        return (short) Math.min(Short.MAX_VALUE, Math.sqrt((double) squares / samples));
+    }
+
+    static long hashPower(long exponent) {
+        long result = 1;
+        long base = HASH_MULTIPLIER;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    private void addFrame(int min, int max, long squares) {
+        pendingMin = Math.min(pendingMin, min);
+        pendingMax = Math.max(pendingMax, max);
+        pendingSquares += squares;
+        if (++pendingCount == samplesPerBucket) {
+            commitPending();
+        }
+    }
+
+    private void commitPending() {
+        if (laneMin != null) {
+            foldPendingLanes();
+            for (int c = 0; c < laneMin.length; ++c) {
+                laneMin[c][bucketCount] = (short) pendingLaneMin[c];
+                laneMax[c][bucketCount] = (short) pendingLaneMax[c];
+                laneSquares[c][bucketCount] = pendingLaneSquares[c];
+            }
+        }
+        bucketMin[bucketCount] = (short) pendingMin;
+        bucketMax[bucketCount] = (short) pendingMax;
+        bucketSquares[bucketCount] = pendingSquares;
+        ++bucketCount;
+        resetPending();
+        if (bucketCount == bucketMin.length) {
+            compact();
+        }
+    }
+
+    private void resetPending() {
+        pendingMin = Short.MAX_VALUE;
+        pendingMax = Short.MIN_VALUE;
+        pendingSquares = 0;
+        pendingCount = 0;
+        if (pendingLaneMin != null) {
+            for (int c = 0; c < pendingLaneMin.length; ++c) {
+                pendingLaneMin[c] = Short.MAX_VALUE;
+                pendingLaneMax[c] = Short.MIN_VALUE;
+                pendingLaneSquares[c] = 0;
+            }
+        }
+    }
+
+    // The mixed bucket is the envelope of the channel buckets, with their squares summed
+    private void foldPendingLanes() {
+        int min = Short.MAX_VALUE;
+        int max = Short.MIN_VALUE;
+        long squares = 0;
+        for (int c = 0; c < pendingLaneMin.length; ++c) {
+            min = Math.min(min, pendingLaneMin[c]);
+            max = Math.max(max, pendingLaneMax[c]);
+            squares += pendingLaneSquares[c];
+        }
+        pendingMin = min;
+        pendingMax = max;
+        pendingSquares = squares;
+    }
+
+    private void compact() {
+        int half = bucketCount / 2;
+        for (int i = 0; i < half; ++i) {
+            int a = 2 * i;
+            int b = a + 1;
+            bucketMin[i] = (short) Math.min(bucketMin[a], bucketMin[b]);
+            bucketMax[i] = (short) Math.max(bucketMax[a], bucketMax[b]);
+            bucketSquares[i] = bucketSquares[a] + bucketSquares[b];
+        }
+        if (laneMin != null) {
+            for (int c = 0; c < laneMin.length; ++c) {
+                short[] min = laneMin[c];
+                short[] max = laneMax[c];
+                long[] squares = laneSquares[c];
+                for (int i = 0; i < half; ++i) {
+                    int a = 2 * i;
+                    int b = a + 1;
+                    min[i] = (short) Math.min(min[a], min[b]);
+                    max[i] = (short) Math.max(max[a], max[b]);
+                    squares[i] = squares[a] + squares[b];
+                }
+            }
+        }
+        bucketCount = half;
+        samplesPerBucket *= 2;
+    }
+}
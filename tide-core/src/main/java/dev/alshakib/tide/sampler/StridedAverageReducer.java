@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import androidx.annotation.NonNull;
+
+final class StridedAverageReducer implements SampleReducer {
+    private static final int STRIDE_COUNT = 5;
+
+    @Override
+    public void reduce(@NonNull PeakPyramid.Level level, double firstBucket, double bucketsPerChunk,
+                       @NonNull byte[] out, int offset, int chunkCount) {
+        int size = level.size;
+        for (int i = 0; i < chunkCount; ++i) {
+            int from = SampleReducer.getFirstBucket(firstBucket, bucketsPerChunk, i);
+            int to = SampleReducer.getEndBucket(firstBucket, bucketsPerChunk, i, size);
+            int step = Math.max(1, (to - from) / STRIDE_COUNT);
+            int sum = 0;
+            int count = 0;
+            for (int j = from; j < to && count < STRIDE_COUNT; j += step, ++count) {
+                sum += Math.max(-level.min[j], level.max[j]);
+            }
+            out[offset + i] = PeakPyramid.toByte(count > 0 ? sum / count : 0);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.decoder;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PcmDecoderTest {
+    private static final int WAVE_FORMAT_PCM = 0x0001;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 0x0003;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    @Test
+    public void decodes8BitUnsigned() throws IOException {
+        byte[] data = { 0, (byte) 128, (byte) 255 };
+        assertArrayEquals(new short[] { Short.MIN_VALUE, 0, 127 << 8 },
+                readAll(raw(data, 1, PcmDecoder.ENCODING_PCM_8BIT)));
+    }
+
+    @Test
+    public void decodes16Bit() throws IOException {
+        byte[] data = le().putShort((short) -2).putShort(Short.MAX_VALUE).putShort((short) 1234).array(6);
+        assertArrayEquals(new short[] { -2, Short.MAX_VALUE, 1234 },
+                readAll(raw(data, 1, PcmDecoder.ENCODING_PCM_16BIT)));
+    }
+
+    @Test
+    public void decodes24BitFromTopBytes() throws IOException {
+        byte[] data = { 0x7F, 0x34, 0x12, 0x00, 0x00, (byte) 0x80 };
+        assertArrayEquals(new short[] { 0x1234, Short.MIN_VALUE },
+                readAll(raw(data, 1, PcmDecoder.ENCODING_PCM_24BIT)));
+    }
+
+    @Test
+    public void decodes32BitFromTopBytes() throws IOException {
+        byte[] data = le().putInt(0x1234FFFF).putInt(-1).array(8);
+        assertArrayEquals(new short[] { 0x1234, -1 },
+                readAll(raw(data, 1, PcmDecoder.ENCODING_PCM_32BIT)));
+    }
+
+    @Test
+    public void decodesAndClampsFloat() throws IOException {
+        byte[] data = le().putFloat(1.0F).putFloat(-1.0F).putFloat(0.5F).putFloat(2.0F).putFloat(-3.0F).array(20);
+        assertArrayEquals(new short[] { Short.MAX_VALUE, -Short.MAX_VALUE, Short.MAX_VALUE / 2,
+                        Short.MAX_VALUE, -Short.MAX_VALUE },
+                readAll(raw(data, 1, PcmDecoder.ENCODING_PCM_FLOAT)));
+    }
+
+    @Test
+    public void dropsTrailingPartialFrame() throws IOException {
+        byte[] data = le().putShort((short) 1).putShort((short) 2).put((byte) 3).array(5);
+        assertArrayEquals(new short[] { 1, 2 }, readAll(raw(data, 2, PcmDecoder.ENCODING_PCM_16BIT)));
+    }
+
+    @Test
+    public void readsOnlyWholeFrames() throws IOException {
+        byte[] data = le().putShort((short) 1).putShort((short) 2).putShort((short) 3).putShort((short) 4).array(8);
+        PcmDecoder decoder = raw(data, 2, PcmDecoder.ENCODING_PCM_16BIT);
+        short[] buffer = new short[3];
+        assertEquals(2, decoder.read(buffer, 0, buffer.length));
+        assertEquals(2, decoder.read(buffer, 0, buffer.length));
+        assertEquals(-1, decoder.read(buffer, 0, buffer.length));
+    }
+
+    @Test
+    public void parsesWavAndSkipsUnknownChunks() throws IOException {
+        byte[] samples = le().putShort((short) 100).putShort((short) -100).putShort((short) 7).putShort((short) 8)
+                .array(8);
+        byte[] wav = new WavBuilder()
+                .chunk("LIST", new byte[3])
+                .fmt(WAVE_FORMAT_PCM, 2, 48000, 16, 0)
+                .data(samples)
+                .chunk("junk", new byte[4])
+                .build();
+        assertTrue(PcmDecoder.isWav(wav, PcmDecoder.WAV_HEADER_PROBE_SIZE));
+        PcmDecoder decoder = PcmDecoder.fromWav(new ByteArrayInputStream(wav));
+        assertEquals(48000, decoder.getSampleRate());
+        assertEquals(2, decoder.getChannelCount());
+        assertArrayEquals(new short[] { 100, -100, 7, 8 }, readAll(decoder));
+    }
+
+    @Test
+    public void parsesExtensibleFloatWav() throws IOException {
+        byte[] wav = new WavBuilder()
+                .fmt(WAVE_FORMAT_EXTENSIBLE, 1, 44100, 32, WAVE_FORMAT_IEEE_FLOAT)
+                .data(le().putFloat(0.5F).array(4))
+                .build();
+        PcmDecoder decoder = PcmDecoder.fromWav(new ByteArrayInputStream(wav));
+        assertArrayEquals(new short[] { Short.MAX_VALUE / 2 }, readAll(decoder));
+    }
+
+    @Test
+    public void parses24BitWav() throws IOException {
+        byte[] wav = new WavBuilder()
+                .fmt(WAVE_FORMAT_PCM, 1, 96000, 24, 0)
+                .data(new byte[] { 0x00, 0x00, 0x40 })
+                .build();
+        PcmDecoder decoder = PcmDecoder.fromWav(new ByteArrayInputStream(wav));
+        assertEquals(96000, decoder.getSampleRate());
+        assertArrayEquals(new short[] { 0x4000 }, readAll(decoder));
+    }
+
+    @Test
+    public void rejectsNonWav() {
+        byte[] header = "RIFF\0\0\0\0AVI ".getBytes(StandardCharsets.US_ASCII);
+        assertFalse(PcmDecoder.isWav(header, header.length));
+        assertFromWavFails(header);
+    }
+
+    @Test
+    public void rejectsDataBeforeFmt() {
+        assertFromWavFails(new WavBuilder().data(new byte[2]).build());
+    }
+
+    @Test
+    public void rejectsUnsupportedFormat() {
+        assertFromWavFails(new WavBuilder().fmt(WAVE_FORMAT_PCM, 1, 8000, 12, 0).data(new byte[2]).build());
+        assertFromWavFails(new WavBuilder().fmt(WAVE_FORMAT_IEEE_FLOAT, 1, 8000, 64, 0).data(new byte[8]).build());
+    }
+
+    @Test
+    public void rejectsInvalidFmtFields() {
+        assertFromWavFails(new WavBuilder().fmt(WAVE_FORMAT_PCM, 0, 8000, 16, 0).data(new byte[2]).build());
+        assertFromWavFails(new WavBuilder().fmt(WAVE_FORMAT_PCM, 1, 0, 16, 0).data(new byte[2]).build());
+        assertFromWavFails(new WavBuilder().fmt(WAVE_FORMAT_PCM, 1, -8000, 16, 0).data(new byte[2]).build());
+        assertFromWavFails(new WavBuilder().fmt(WAVE_FORMAT_PCM, 1, 8000, 0, 0).data(new byte[2]).build());
+    }
+
+    @Test
+    public void rejectsTruncatedHeader() {
+        byte[] wav = new WavBuilder().fmt(WAVE_FORMAT_PCM, 1, 8000, 16, 0).data(new byte[2]).build();
+        assertFromWavFails(Arrays.copyOf(wav, 20));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownEncoding() {
+        raw(new byte[0], 1, 0);
+    }
+
+    private static void assertFromWavFails(byte[] wav) {
+        try {
+            PcmDecoder.fromWav(new ByteArrayInputStream(wav));
+            throw new AssertionError("Parsed an invalid WAVE stream");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    private static PcmDecoder raw(byte[] data, int channelCount, int encoding) {
+        return new PcmDecoder(new ByteArrayInputStream(data), 44100, channelCount, encoding);
+    }
+
+    private static short[] readAll(PcmDecoder decoder) throws IOException {
+        short[] buffer = new short[64];
+        short[] out = new short[0];
+        int read;
+        while ((read = decoder.read(buffer, 0, buffer.length)) != -1) {
+            int length = out.length;
+            out = Arrays.copyOf(out, length + read);
+            System.arraycopy(buffer, 0, out, length, read);
+        }
+        return out;
+    }
+
+    private static LittleEndian le() {
+        return new LittleEndian();
+    }
+
+    private static final class LittleEndian {
+        private final ByteBuffer buffer = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+
+        LittleEndian put(byte value) {
+            buffer.put(value);
+            return this;
+        }
+
+        LittleEndian putShort(short value) {
+            buffer.putShort(value);
+            return this;
+        }
+
+        LittleEndian putInt(int value) {
+            buffer.putInt(value);
+            return this;
+        }
+
+        LittleEndian putFloat(float value) {
+            buffer.putFloat(value);
+            return this;
+        }
+
+        byte[] array(int length) {
+            assertEquals(length, buffer.position());
+            return Arrays.copyOf(buffer.array(), length);
+        }
+    }
+
+    private static final class WavBuilder {
+        private final ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+
+        WavBuilder fmt(int format, int channelCount, int sampleRate, int bitsPerSample, int subFormat) {
+            boolean extensible = format == WAVE_FORMAT_EXTENSIBLE;
+            int blockAlign = channelCount * bitsPerSample / 8;
+            ByteBuffer fmt = ByteBuffer.allocate(extensible ? 40 : 16).order(ByteOrder.LITTLE_ENDIAN);
+            fmt.putShort((short) format)
+                    .putShort((short) channelCount)
+                    .putInt(sampleRate)
+                    .putInt(sampleRate * blockAlign)
+                    .putShort((short) blockAlign)
+                    .putShort((short) bitsPerSample);
+            if (extensible) {
+                fmt.putShort((short) 22).putShort((short) bitsPerSample).putInt(0).putShort((short) subFormat);
+            }
+            return chunk("fmt ", fmt.array());
+        }
+
+        WavBuilder data(byte[] data) {
+            return chunk("data", data);
+        }
+
+        WavBuilder chunk(String id, byte[] body) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            header.put(id.getBytes(StandardCharsets.US_ASCII)).putInt(body.length);
+            chunks.write(header.array(), 0, 8);
+            chunks.write(body, 0, body.length);
+            if (body.length % 2 != 0) {
+                chunks.write(0);
+            }
+            return this;
+        }
+
+        byte[] build() {
+            byte[] body = chunks.toByteArray();
+            ByteBuffer wav = ByteBuffer.allocate(12 + body.length).order(ByteOrder.LITTLE_ENDIAN);
+            wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(4 + body.length)
+                    .put("WAVE".getBytes(StandardCharsets.US_ASCII)).put(body);
+            return wav.array();
+        }
+    }
+}
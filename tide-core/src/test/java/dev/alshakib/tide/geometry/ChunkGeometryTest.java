@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.geometry;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class ChunkGeometryTest {
+    private static final int CHUNK_COUNT = 256;
+    private static final int FRAME_COUNT = 100_000;
+
+    @Test
+    public void chunkLeftIsCachedForSameLayout() {
+        ChunkGeometry geometry = newGeometry();
+        float[] left = geometry.getChunkLeft(4);
+        assertArrayEquals(new float[] { 1F, 7F, 13F, 19F }, left, 0F);
+        assertSame(left, geometry.getChunkLeft(4));
+    }
+
+    @Test
+    public void linePointsAreCenteredInChunk() {
+        ChunkGeometry geometry = newGeometry();
+        byte[] data = { 0, Byte.MAX_VALUE };
+        float[] points = geometry.getLinePoints(data, 0, data.length, 50, 1F, 0F);
+        assertArrayEquals(new float[] { 3F, 48F, 3F, 52F, 9F, 10F, 9F, 90F }, points, 0F);
+    }
+
+    @Test
+    public void frameLayoutDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        ChunkGeometry geometry = newGeometry();
+        byte[] data = new byte[CHUNK_COUNT];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) (i % Byte.MAX_VALUE);
+        }
+        long threadId = Thread.currentThread().getId();
+        float checksum = layoutFrames(geometry, data);
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        checksum += layoutFrames(geometry, data);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(checksum != 0F);
+        // One float[] per frame would be over 1 KiB, so anything below that means the
+        // per-frame path reuses its arrays.
+        assertTrue("allocated " + allocated + " bytes over " + FRAME_COUNT + " frames", allocated < 1024L);
+        assertEquals(CHUNK_COUNT, geometry.getChunkLeft(CHUNK_COUNT).length);
+    }
+
+    private static float layoutFrames(ChunkGeometry geometry, byte[] data) {
+        float checksum = 0F;
+        for (int frame = 0; frame < FRAME_COUNT; ++frame) {
+            float factor = (frame % 100) / 100F;
+            float[] left = geometry.getChunkLeft(data.length);
+            float[] points = geometry.getLinePoints(data, 0, data.length, 100, factor, 1F);
+            checksum += left[frame % data.length] + points[(frame % data.length) * 4 + 1]
+                    + geometry.getHalfHeight(data[frame % data.length], factor);
+        }
+        return checksum;
+    }
+
+    private static ChunkGeometry newGeometry() {
+        ChunkGeometry geometry = new ChunkGeometry();
+        geometry.set(4, 2, 2, 2, 80);
+        return geometry;
+    }
+}
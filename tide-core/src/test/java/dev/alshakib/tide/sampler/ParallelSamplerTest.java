@@ -0,0 +1,154 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import dev.alshakib.tide.decoder.AudioDecoder;
+
+import static dev.alshakib.tide.sampler.PeakPyramidAssert.assertPyramidEquals;
+import static dev.alshakib.tide.sampler.PeakPyramidAssert.randomShorts;
+
+public class ParallelSamplerTest {
+    private static final int BUCKET_CAPACITY = 64;
+    private static final int PARALLEL_THRESHOLD = 1000;
+    // Around the threshold, odd lengths, and one long enough to split into several leaves
+    private static final int[] SIZES = { 0, 1, 7, 999, 1000, 1001, 4097, 65_537, 300_007 };
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setUpPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void tearDownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void monoShortsMatchStreamingSampler() {
+        assertShortsMatch(1);
+    }
+
+    @Test
+    public void stereoShortsMatchStreamingSampler() {
+        assertShortsMatch(2);
+    }
+
+    @Test
+    public void bytesMatchStreamingSampler() {
+        Random random = new Random(42L);
+        for (int size : SIZES) {
+            byte[] bytes = new byte[size + 3];
+            random.nextBytes(bytes);
+            StreamingSampler sampler = new StreamingSampler(BUCKET_CAPACITY);
+            sampler.add(bytes, 3, size);
+            PeakPyramid parallel = ParallelSampler.sample(pool, bytes, 3, size, BUCKET_CAPACITY, PARALLEL_THRESHOLD);
+            assertPyramidEquals("size " + size, sampler.build(), parallel);
+        }
+    }
+
+    @Test
+    public void pipelinedMatchesStreamingSampler() throws IOException {
+        Random random = new Random(7L);
+        for (int size : SIZES) {
+            short[] samples = randomShorts(random, size * 2);
+            StreamingSampler expected = new StreamingSampler(BUCKET_CAPACITY, true);
+            expected.add(new ArrayDecoder(samples, 2), new short[1000]);
+            PipelinedSampler sampler = new PipelinedSampler(new StreamingSampler(BUCKET_CAPACITY, true), pool,
+                    new short[1000], new short[1000]);
+            sampler.add(new ArrayDecoder(samples, 2));
+            PeakPyramid expectedPyramid = expected.build();
+            PeakPyramid actual = sampler.build();
+            assertPyramidEquals("size " + size, expectedPyramid, actual);
+            for (int lane = 0; lane < expectedPyramid.getLaneCount(); ++lane) {
+                assertPyramidEquals("size " + size + " lane " + lane,
+                        expectedPyramid.getLane(lane), actual.getLane(lane));
+            }
+        }
+    }
+
+    private static void assertShortsMatch(int channelCount) {
+        Random random = new Random(channelCount);
+        for (int size : SIZES) {
+            int offset = 5;
+            short[] samples = randomShorts(random, offset + size * channelCount);
+            StreamingSampler sampler = new StreamingSampler(BUCKET_CAPACITY);
+            sampler.add(samples, offset, size * channelCount, channelCount);
+            PeakPyramid parallel = ParallelSampler.sample(pool, samples, offset, size * channelCount, channelCount,
+                    BUCKET_CAPACITY, PARALLEL_THRESHOLD);
+            assertPyramidEquals(channelCount + " channels, size " + size, sampler.build(), parallel);
+        }
+    }
+
+    /**
+     * Serves interleaved samples from memory in reads of at most the caller's buffer length.
+     */
+    static final class ArrayDecoder implements AudioDecoder {
+        private final short[] samples;
+        private final int channelCount;
+        private int position;
+
+        ArrayDecoder(short[] samples, int channelCount) {
+            this.samples = samples;
+            this.channelCount = channelCount;
+        }
+
+        @Override
+        public int getSampleRate() {
+            return 44100;
+        }
+
+        @Override
+        public int getChannelCount() {
+            return channelCount;
+        }
+
+        @Override
+        public int read(short[] buffer, int offset, int length) {
+            if (position == samples.length) {
+                return -1;
+            }
+            int count = Math.min(length - length % channelCount, samples.length - position);
+            System.arraycopy(samples, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
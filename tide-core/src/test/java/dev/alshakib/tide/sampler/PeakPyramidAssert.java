@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Assertions and fixtures shared by the sampler tests.
+ */
+final class PeakPyramidAssert {
+    private PeakPyramidAssert() { }
+
+    /**
+     * Asserts that both pyramids have the same frame count, fingerprint, lane count and
+     * identical buckets on every level. Lanes are not compared.
+     */
+    static void assertPyramidEquals(String message, PeakPyramid expected, PeakPyramid actual) {
+        assertEquals(message, expected.getFrameCount(), actual.getFrameCount());
+        assertEquals(message, expected.getFingerprint(), actual.getFingerprint());
+        assertEquals(message, expected.getLevelCount(), actual.getLevelCount());
+        assertEquals(message, expected.getLaneCount(), actual.getLaneCount());
+        for (int i = 0; i < expected.getLevelCount(); ++i) {
+            PeakPyramid.Level expectedLevel = expected.getLevel(i);
+            PeakPyramid.Level actualLevel = actual.getLevel(i);
+            String levelMessage = message + ", level " + i;
+            assertEquals(levelMessage, expectedLevel.getSize(), actualLevel.getSize());
+            assertEquals(levelMessage, expectedLevel.getSamplesPerBucket(), actualLevel.getSamplesPerBucket());
+            for (int j = 0; j < expectedLevel.getSize(); ++j) {
+                assertEquals(levelMessage, expectedLevel.getMin(j), actualLevel.getMin(j));
+                assertEquals(levelMessage, expectedLevel.getMax(j), actualLevel.getMax(j));
+                assertEquals(levelMessage, expectedLevel.getRms(j), actualLevel.getRms(j));
+            }
+        }
+    }
+
+    static short[] randomShorts(Random random, int length) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; ++i) {
+            samples[i] = (short) random.nextInt(1 << 16);
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static dev.alshakib.tide.sampler.PeakPyramidAssert.assertPyramidEquals;
+import static dev.alshakib.tide.sampler.PeakPyramidAssert.randomShorts;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class PeaksFileTest {
+    private static final String TAG = "content://media/42";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripWithoutLanes() throws IOException {
+        PeakPyramid pyramid = newPyramid(1, false);
+        File file = folder.newFile("mono" + PeaksFile.EXTENSION);
+        PeaksFile.write(file, pyramid, TAG);
+        PeakPyramid read = PeaksFile.read(file, TAG);
+        assertNotNull(read);
+        assertPyramidEquals("mono", pyramid, read);
+        assertEquals(0, read.getLaneCount());
+    }
+
+    @Test
+    public void roundTripWithLanes() throws IOException {
+        PeakPyramid pyramid = newPyramid(2, true);
+        File file = folder.newFile("stereo" + PeaksFile.EXTENSION);
+        PeaksFile.write(file, pyramid, TAG);
+        PeakPyramid read = PeaksFile.read(file, null);
+        assertNotNull(read);
+        assertPyramidEquals("stereo", pyramid, read);
+        for (int lane = 0; lane < 2; ++lane) {
+            assertPyramidEquals("lane " + lane, pyramid.getLane(lane), read.getLane(lane));
+        }
+    }
+
+    @Test
+    public void otherTagOrVersionReadsAsNull() throws IOException {
+        File file = folder.newFile("tagged" + PeaksFile.EXTENSION);
+        PeaksFile.write(file, newPyramid(1, false), TAG);
+        assertNull(PeaksFile.read(file, "content://media/43"));
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(Integer.BYTES);
+            output.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(PeaksFile.VERSION - 1).array());
+        }
+        assertNull(PeaksFile.read(file, TAG));
+    }
+
+    @Test
+    public void truncatedFileThrowsIOException() throws IOException {
+        File source = folder.newFile("full" + PeaksFile.EXTENSION);
+        PeaksFile.write(source, newPyramid(2, true), TAG);
+        byte[] bytes = Files.readAllBytes(source.toPath());
+        File file = folder.newFile("truncated" + PeaksFile.EXTENSION);
+        for (int length = 0; length < bytes.length; ++length) {
+            Files.write(file.toPath(), Arrays.copyOf(bytes, length));
+            assertReadFails("length " + length, file);
+        }
+    }
+
+    @Test
+    public void garbageThrowsIOException() throws IOException {
+        Random random = new Random(3L);
+        File file = folder.newFile("garbage" + PeaksFile.EXTENSION);
+        for (int i = 0; i < 200; ++i) {
+            byte[] bytes = new byte[1 + random.nextInt(512)];
+            random.nextBytes(bytes);
+            Files.write(file.toPath(), bytes);
+            assertReadFails("random file " + i, file);
+            // Past a valid magic and version, the rest is still garbage
+            if (bytes.length >= 2 * Integer.BYTES) {
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(PeaksFile.MAGIC).putInt(PeaksFile.VERSION);
+                Files.write(file.toPath(), bytes);
+                assertReadFails("random body " + i, file);
+            }
+        }
+    }
+
+    private static void assertReadFails(String message, File file) {
+        try {
+            PeaksFile.read(file, null);
+            fail(message + " was read");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    private static PeakPyramid newPyramid(int channelCount, boolean splitChannels) {
+        StreamingSampler sampler = new StreamingSampler(16, splitChannels);
+        short[] samples = randomShorts(new Random(channelCount), 1001 * channelCount);
+        sampler.add(samples, 0, samples.length, channelCount);
+        return sampler.build();
+    }
+}
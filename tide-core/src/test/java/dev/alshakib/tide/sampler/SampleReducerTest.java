@@ -0,0 +1,192 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SampleReducerTest {
+    private static final SampleReducer[] REDUCERS = {
+            SampleReducer.MAX_ABS, SampleReducer.RMS, SampleReducer.STRIDED_AVERAGE, SampleReducer.LTTB
+    };
+    private static final byte UNTOUCHED = 99;
+
+    @Test
+    public void maxAbsTakesLargestPeakOfEitherSign() {
+        PeakPyramid.Level level = levelOfPeaks(1, -5, 2, 8, -3, 3, 7, 0);
+        assertArrayEquals(bytes(5, 8, 3, 7), reduce(SampleReducer.MAX_ABS, level, 0.0, 2.0, 4));
+        // Uneven chunks: [0, 2), [2, 5), [5, 8)
+        assertArrayEquals(bytes(5, 8, 7), reduce(SampleReducer.MAX_ABS, level, 0.0, 8.0 / 3.0, 3));
+    }
+
+    @Test
+    public void rmsIsRootMeanSquareOfBuckets() {
+        PeakPyramid.Level level = level(new int[8], new int[8], scale(1, 7, 5, 5, 2, 14, 0, 0));
+        assertArrayEquals(bytes(5, 5, 10, 0), reduce(SampleReducer.RMS, level, 0.0, 2.0, 4));
+    }
+
+    @Test
+    public void stridedAverageSamplesFiveEvenlySpacedBuckets() {
+        int[] peaks = new int[20];
+        for (int i = 0; i < peaks.length; ++i) {
+            // Only the even buckets are visited with a stride of two
+            peaks[i] = i % 2 == 0 ? i / 2 + 1 : 100;
+        }
+        PeakPyramid.Level level = levelOfPeaks(peaks);
+        assertArrayEquals(bytes(3, 8), reduce(SampleReducer.STRIDED_AVERAGE, level, 0.0, 10.0, 2));
+        // Narrow chunks visit every bucket
+        assertArrayEquals(bytes(50, 51), reduce(SampleReducer.STRIDED_AVERAGE, level, 0.0, 2.0, 2));
+    }
+
+    @Test
+    public void lttbKeepsSpikesAndPicksRealBuckets() {
+        int[] peaks = new int[32];
+        Arrays.fill(peaks, 1);
+        peaks[13] = 100;
+        PeakPyramid.Level level = levelOfPeaks(peaks);
+        assertEquals(8, SampleReducer.LTTB.getMinBucketsPerChunk());
+        assertArrayEquals(bytes(1, 100, 1, 1), reduce(SampleReducer.LTTB, level, 0.0, 8.0, 4));
+    }
+
+    @Test
+    public void lttbOnStraightLinePicksFirstBucketOfEachChunk() {
+        int[] peaks = new int[16];
+        for (int i = 0; i < peaks.length; ++i) {
+            peaks[i] = 2 * i;
+        }
+        PeakPyramid.Level level = levelOfPeaks(peaks);
+        // Every candidate is collinear, so no triangle beats the first one
+        assertArrayEquals(bytes(0, 8, 16, 24), reduce(SampleReducer.LTTB, level, 0.0, 4.0, 4));
+    }
+
+    @Test
+    public void chunksPastTheEndAreZero() {
+        PeakPyramid.Level level = level(scale(-4, -4, -4, -4), scale(4, 4, 4, 4), scale(4, 4, 4, 4));
+        for (SampleReducer reducer : REDUCERS) {
+            byte[] out = reduce(reducer, level, 2.0, 1.0, 4);
+            assertArrayEquals(reducer.toString(), bytes(4, 4, 0, 0), out);
+        }
+    }
+
+    @Test
+    public void emptyLevelIsZero() {
+        PeakPyramid.Level level = level(new int[0], new int[0], new int[0]);
+        for (SampleReducer reducer : REDUCERS) {
+            assertArrayEquals(reducer.toString(), bytes(0, 0, 0), reduce(reducer, level, 0.0, 1.0, 3));
+        }
+    }
+
+    @Test
+    public void onlyWritesFromOffset() {
+        PeakPyramid.Level level = levelOfPeaks(3, 3);
+        for (SampleReducer reducer : REDUCERS) {
+            byte[] out = new byte[4];
+            Arrays.fill(out, UNTOUCHED);
+            reducer.reduce(level, 0.0, 1.0, out, 1, 2);
+            assertEquals(reducer.toString(), UNTOUCHED, out[0]);
+            assertEquals(reducer.toString(), UNTOUCHED, out[3]);
+        }
+    }
+
+    @Test
+    public void windowPastTheEndOfPyramidIsZeroFilled() {
+        StreamingSampler sampler = new StreamingSampler(64);
+        short[] samples = new short[1000];
+        Arrays.fill(samples, (short) (20 << 8));
+        sampler.add(samples, 0, samples.length, 1);
+        PeakPyramid pyramid = sampler.build();
+        for (SampleReducer reducer : REDUCERS) {
+            byte[] out = new byte[8];
+            Arrays.fill(out, UNTOUCHED);
+            // The second half of the window lies past the end of the source
+            pyramid.getPeaks(out, 0, out.length, 0.5, 1.5, reducer);
+            assertArrayEquals(reducer.toString(), bytes(20, 20, 20, 20, 0, 0, 0, 0), out);
+        }
+    }
+
+    @Test
+    public void emptyPyramidIsZeroFilled() {
+        PeakPyramid pyramid = new StreamingSampler(64).build();
+        for (SampleReducer reducer : REDUCERS) {
+            byte[] out = new byte[4];
+            Arrays.fill(out, UNTOUCHED);
+            pyramid.getPeaks(out, 0, out.length, 0.0, 1.0, reducer);
+            assertArrayEquals(reducer.toString(), new byte[4], out);
+        }
+    }
+
+    private static byte[] reduce(SampleReducer reducer, PeakPyramid.Level level, double firstBucket,
+                                 double bucketsPerChunk, int chunkCount) {
+        byte[] out = new byte[chunkCount];
+        Arrays.fill(out, UNTOUCHED);
+        reducer.reduce(level, firstBucket, bucketsPerChunk, out, 0, chunkCount);
+        return out;
+    }
+
+    // Byte amplitudes are the top byte of the 16-bit ones, so known values are scaled by 256
+    private static PeakPyramid.Level levelOfPeaks(int... peaks) {
+        int[] min = new int[peaks.length];
+        int[] max = new int[peaks.length];
+        for (int i = 0; i < peaks.length; ++i) {
+            min[i] = Math.min(peaks[i], 0) * 256;
+            max[i] = Math.max(peaks[i], 0) * 256;
+        }
+        return level(min, max, new int[peaks.length]);
+    }
+
+    private static PeakPyramid.Level level(int[] min, int[] max, int[] rms) {
+        return new PeakPyramid.Level(toShorts(min), toShorts(max), toShorts(rms), 1L);
+    }
+
+    private static int[] scale(int... values) {
+        int[] scaled = new int[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            scaled[i] = values[i] * 256;
+        }
+        return scaled;
+    }
+
+    private static short[] toShorts(int[] values) {
+        short[] shorts = new short[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            shorts[i] = (short) values[i];
+        }
+        return shorts;
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
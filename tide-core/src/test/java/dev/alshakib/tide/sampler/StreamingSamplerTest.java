@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.sampler;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static dev.alshakib.tide.sampler.PeakPyramidAssert.assertPyramidEquals;
+import static dev.alshakib.tide.sampler.PeakPyramidAssert.randomShorts;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingSamplerTest {
+    private static final int BUCKET_CAPACITY = 4;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddCapacityIsRejected() {
+        new StreamingSampler(3);
+    }
+
+    @Test
+    public void compactedBucketsMatchBruteForce() {
+        Random random = new Random(11L);
+        for (int frameCount = 1; frameCount <= 200; ++frameCount) {
+            short[] samples = randomShorts(random, frameCount);
+            StreamingSampler sampler = new StreamingSampler(BUCKET_CAPACITY);
+            sampler.add(samples, 0, samples.length, 1);
+            PeakPyramid.Level level = sampler.build().getLevel(0);
+
+            long samplesPerBucket = StreamingSampler.getSamplesPerBucket(frameCount, BUCKET_CAPACITY);
+            String message = frameCount + " frames";
+            assertEquals(message, samplesPerBucket, level.getSamplesPerBucket());
+            assertEquals(message, (frameCount + samplesPerBucket - 1) / samplesPerBucket, level.getSize());
+            assertTrue(message, level.getSize() <= BUCKET_CAPACITY);
+            for (int bucket = 0; bucket < level.getSize(); ++bucket) {
+                int start = (int) (bucket * samplesPerBucket);
+                int end = (int) Math.min(start + samplesPerBucket, frameCount);
+                int min = Short.MAX_VALUE;
+                int max = Short.MIN_VALUE;
+                long squares = 0;
+                for (int i = start; i < end; ++i) {
+                    min = Math.min(min, samples[i]);
+                    max = Math.max(max, samples[i]);
+                    squares += samples[i] * samples[i];
+                }
+                String bucketMessage = message + ", bucket " + bucket;
+                assertEquals(bucketMessage, min, level.getMin(bucket));
+                assertEquals(bucketMessage, max, level.getMax(bucket));
+                assertEquals(bucketMessage, StreamingSampler.toRms(squares, end - start), level.getRms(bucket));
+            }
+        }
+    }
+
+    @Test
+    public void resultDoesNotDependOnChunking() {
+        Random random = new Random(5L);
+        short[] samples = randomShorts(random, 2 * 5000);
+        StreamingSampler whole = new StreamingSampler(BUCKET_CAPACITY, true);
+        whole.add(samples, 0, samples.length, 2);
+        StreamingSampler chunked = new StreamingSampler(BUCKET_CAPACITY, true);
+        for (int offset = 0; offset < samples.length; ) {
+            int length = Math.min(2 * (1 + random.nextInt(300)), samples.length - offset);
+            chunked.add(samples, offset, length, 2);
+            offset += length;
+        }
+        PeakPyramid expected = whole.build();
+        PeakPyramid actual = chunked.build();
+        assertEquals(samples.length / 2, actual.getFrameCount());
+        assertPyramidEquals("mixed", expected, actual);
+        for (int lane = 0; lane < 2; ++lane) {
+            assertPyramidEquals("lane " + lane, expected.getLane(lane), actual.getLane(lane));
+        }
+    }
+
+    @Test
+    public void lanesMatchPerChannelSamplers() {
+        short[] samples = randomShorts(new Random(9L), 2 * 3001);
+        StreamingSampler sampler = new StreamingSampler(BUCKET_CAPACITY, true);
+        sampler.add(samples, 0, samples.length, 2);
+        PeakPyramid pyramid = sampler.build();
+        assertEquals(2, pyramid.getLaneCount());
+        PeakPyramid.Level mixed = pyramid.getLevel(0);
+        for (int lane = 0; lane < 2; ++lane) {
+            short[] channel = new short[samples.length / 2];
+            for (int i = 0; i < channel.length; ++i) {
+                channel[i] = samples[2 * i + lane];
+            }
+            StreamingSampler mono = new StreamingSampler(BUCKET_CAPACITY);
+            mono.add(channel, 0, channel.length, 1);
+            PeakPyramid.Level expected = mono.build().getLevel(0);
+            PeakPyramid.Level actual = pyramid.getLane(lane).getLevel(0);
+            assertEquals(expected.getSize(), actual.getSize());
+            for (int i = 0; i < expected.getSize(); ++i) {
+                assertEquals(expected.getMin(i), actual.getMin(i));
+                assertEquals(expected.getMax(i), actual.getMax(i));
+                assertEquals(expected.getRms(i), actual.getRms(i));
+                // The mixed bucket is the envelope of the channels
+                assertTrue(mixed.getMin(i) <= actual.getMin(i));
+                assertTrue(mixed.getMax(i) >= actual.getMax(i));
+            }
+        }
+    }
+
+    @Test
+    public void fingerprintChangesWithAnySample() {
+        short[] samples = randomShorts(new Random(13L), 4000);
+        StreamingSampler sampler = new StreamingSampler(BUCKET_CAPACITY);
+        sampler.add(samples, 0, samples.length, 1);
+        ++samples[2500];
+        StreamingSampler changed = new StreamingSampler(BUCKET_CAPACITY);
+        changed.add(samples, 0, samples.length, 1);
+        assertNotEquals(sampler.getFingerprint(), changed.getFingerprint());
+    }
+}
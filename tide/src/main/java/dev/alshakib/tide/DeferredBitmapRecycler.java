@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import android.graphics.Bitmap;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import dev.alshakib.tide.cache.WaveformBitmapPool;
+
+/**
+ * Returns a bitmap that was on screen to its pool only after the following frame has been
+ * drawn. The last recorded display list may still reference it until then, and the pool hands
+ * bitmaps out to be overwritten straight away.
+ */
+final class DeferredBitmapRecycler implements Choreographer.FrameCallback {
+    // The frame that may still draw the bitmap, then the one that replaces it
+    private static final int FRAME_DELAY = 2;
+
+    private final Bitmap bitmap;
+    private final WaveformBitmapPool pool;
+    private int framesLeft;
+
+    private DeferredBitmapRecycler(@NonNull Bitmap bitmap, @Nullable WaveformBitmapPool pool) {
+        this.bitmap = bitmap;
+        this.pool = pool;
+        this.framesLeft = FRAME_DELAY;
+    }
+
+    @MainThread
+    static void recycleAfterNextFrame(@Nullable Bitmap bitmap, @Nullable WaveformBitmapPool pool) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        Choreographer.getInstance().postFrameCallback(new DeferredBitmapRecycler(bitmap, pool));
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (--framesLeft > 0) {
+            Choreographer.getInstance().postFrameCallback(this);
+            return;
+        }
+        if (bitmap.isRecycled()) {
+            return;
+        }
+        if (pool != null) {
+            pool.put(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import dev.alshakib.tide.cache.WaveformBitmapPool;
+
+/**
+ * Keeps the most recent chunks of a live source in a fixed-capacity ring buffer. Incoming samples
+ * are reduced to one peak per chunk as they arrive, so memory stays constant however long the
+ * source runs. Chunks are rasterized into a bitmap that is itself used as a ring: each new chunk
+ * is drawn once into its own column, and scrolling only moves the seam where the bitmap is split
+ * when it is drawn.
+ */
+final class LiveWaveform {
+    static final int DEFAULT_SAMPLES_PER_CHUNK = 2048;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final WaveformRenderer renderer;
+    private final Canvas canvas;
+    private final Rect srcRect;
+    private final Rect dstRect;
+    private final Object lock;
+
+    private WaveformBitmapPool bitmapPool;
+    private Bitmap bitmap;
+    private long renderedCount;
+    private int stepWidth;
+
+    // Guarded by lock
+    private byte[] peaks;
+    private long chunkCount;
+    private int samplesPerChunk;
+    private int pendingPeak;
+    private int pendingCount;
+
+    LiveWaveform() {
+        this.renderer = new WaveformRenderer();
+        this.canvas = new Canvas();
+        this.srcRect = new Rect();
+        this.dstRect = new Rect();
+        this.lock = new Object();
+        this.peaks = new byte[INITIAL_CAPACITY];
+        this.samplesPerChunk = DEFAULT_SAMPLES_PER_CHUNK;
+    }
+
+    @MainThread
+    void setBitmapPool(@Nullable WaveformBitmapPool pool) {
+        this.bitmapPool = pool;
+    }
+
+    @AnyThread
+    int getSamplesPerChunk() {
+        synchronized (lock) {
+            return samplesPerChunk;
+        }
+    }
+
+    @AnyThread
+    void setSamplesPerChunk(int samples) {
+        synchronized (lock) {
+            samplesPerChunk = Math.max(samples, 1);
+        }
+    }
+
+    /**
+     * Returns {@code true} if at least one new chunk was completed.
+     */
+    @AnyThread
+    boolean append(@NonNull short[] samples, int offset, int length) {
+        synchronized (lock) {
+            long count = chunkCount;
+            for (int i = offset; i < offset + length; ++i) {
+                accumulate(samples[i]);
+            }
+            return chunkCount != count;
+        }
+    }
+
+    /**
+     * Returns {@code true} if at least one new chunk was completed. Samples are expected in
+     * {@code [-1, 1]}, anything outside is clipped.
+     */
+    @AnyThread
+    boolean append(@NonNull float[] samples, int offset, int length) {
+        synchronized (lock) {
+            long count = chunkCount;
+            for (int i = offset; i < offset + length; ++i) {
+                float sample = Math.max(-1.0F, Math.min(1.0F, samples[i]));
+                accumulate((int) (sample * Short.MAX_VALUE));
+            }
+            return chunkCount != count;
+        }
+    }
+
+    @AnyThread
+    void clear() {
+        synchronized (lock) {
+            chunkCount = 0;
+            pendingPeak = 0;
+            pendingCount = 0;
+            renderedCount = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Resizes the ring buffer, keeping the most recent chunks.
+     */
+    @AnyThread
+    void setCapacity(int capacity) {
+        synchronized (lock) {
+            capacity = Math.max(capacity, 1);
+            if (peaks.length == capacity) {
+                return;
+            }
+            byte[] resized = new byte[capacity];
+            long first = Math.max(0, chunkCount - Math.min(capacity, peaks.length));
+            for (long i = first; i < chunkCount; ++i) {
+                resized[(int) (i % capacity)] = peaks[(int) (i % peaks.length)];
+            }
+            peaks = resized;
+            renderedCount = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Forces the next {@link #render} to rasterize every chunk again, e.g. after a style change.
+     */
+    @AnyThread
+    void invalidate() {
+        synchronized (lock) {
+            renderedCount = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Rasterizes the chunks that arrived since the previous call and returns how many there were.
+     */
+    @MainThread
+    int render(@NonNull WaveformRasterizer.Frame frame) {
+        synchronized (lock) {
+            int capacity = peaks.length;
+            int width = capacity * (frame.chunkWidth + frame.chunkSpacing);
+            if (width <= 0 || frame.height <= 0) {
+                return 0;
+            }
+            if (!fits(bitmap, width, frame.height, frame.config)) {
+                DeferredBitmapRecycler.recycleAfterNextFrame(bitmap, bitmapPool);
+                bitmap = borrow(width, frame.height, frame.config);
+                renderedCount = Long.MIN_VALUE;
+            }
+            long from = Math.max(Math.max(renderedCount, chunkCount - capacity), 0);
+            if (renderedCount == Long.MIN_VALUE) {
+                bitmap.eraseColor(0);
+            }
+            stepWidth = frame.chunkWidth + frame.chunkSpacing;
+            renderedCount = chunkCount;
+            if (from >= chunkCount) {
+                return 0;
+            }
+            renderer.setColor(frame.color);
+            renderer.setBatched(frame.batched);
+            renderer.setGeometry(frame.chunkWidth, frame.chunkSpacing, frame.chunkRadius,
+                    frame.chunkMinHeight, frame.chunkMaxHeight);
+            canvas.setBitmap(bitmap);
+            int start = (int) (from % capacity);
+            int end = (int) ((chunkCount - 1) % capacity) + 1;
+            if (start < end) {
+                renderColumns(start, end, frame.height / 2);
+            } else {
+                renderColumns(start, capacity, frame.height / 2);
+                renderColumns(0, end, frame.height / 2);
+            }
+            canvas.setBitmap(null);
+            return (int) (chunkCount - from);
+        }
+    }
+
+    /**
+     * Draws the rasterized chunks oldest first, with the newest chunk at the right edge once the
+     * buffer has wrapped around.
+     */
+    @MainThread
+    void draw(@NonNull Canvas target, @NonNull Paint paint) {
+        long count;
+        synchronized (lock) {
+            count = renderedCount;
+        }
+        if (bitmap == null || stepWidth <= 0) {
+            return;
+        }
+        int capacity = bitmap.getWidth() / stepWidth;
+        if (count <= capacity) {
+            target.drawBitmap(bitmap, 0.0F, 0.0F, paint);
+            return;
+        }
+        int seam = (int) (count % capacity) * stepWidth;
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        srcRect.set(seam, 0, width, height);
+        dstRect.set(0, 0, width - seam, height);
+        target.drawBitmap(bitmap, srcRect, dstRect, paint);
+        if (seam > 0) {
+            srcRect.set(0, 0, seam, height);
+            dstRect.set(width - seam, 0, width, height);
+            target.drawBitmap(bitmap, srcRect, dstRect, paint);
+        }
+    }
+
+    /**
+     * Drops the buffer, returning it to the pool only after the following frame since the
+     * last display list may still draw it.
+     */
+    @MainThread
+    void release() {
+        DeferredBitmapRecycler.recycleAfterNextFrame(bitmap, bitmapPool);
+        bitmap = null;
+        invalidate();
+    }
+
+    private void accumulate(int sample) {
+        pendingPeak = Math.max(pendingPeak, sample < 0 ? -sample : sample);
+        if (++pendingCount < samplesPerChunk) {
+            return;
+        }
+        peaks[(int) (chunkCount % peaks.length)] = (byte) Math.min(pendingPeak >> 8, Byte.MAX_VALUE);
+        ++chunkCount;
+        pendingPeak = 0;
+        pendingCount = 0;
+    }
+
+    private void renderColumns(int from, int to, int centerY) {
+        canvas.save();
+        canvas.clipRect(from * stepWidth, 0, to * stepWidth, bitmap.getHeight());
+        canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+        canvas.restore();
+        renderer.draw(canvas, peaks, from, to, centerY, 1.0F);
+    }
+
+    @NonNull
+    private Bitmap borrow(int width, int height, @NonNull Bitmap.Config config) {
+        WaveformBitmapPool pool = bitmapPool;
+        return pool != null
+                ? pool.get(width, height, config)
+                : Bitmap.createBitmap(width, height, config);
+    }
+
+    private static boolean fits(@Nullable Bitmap bitmap, int width, int height, @NonNull Bitmap.Config config) {
+        return bitmap != null && !bitmap.isRecycled()
+                && bitmap.getWidth() == width && bitmap.getHeight() == height
+                && bitmap.getConfig() == config;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import androidx.annotation.MainThread;
+
+/**
+ * Source of the playback position for {@link TideView#setPlaybackClock(PlaybackClock)}. The view
+ * reads it on the main thread once per display frame while {@link #isPlaying()}, so every method
+ * should be cheap, e.g. forwarding to the player. Once it stops playing the view reads it no more
+ * until {@link TideView#onPlaybackStateChanged()} is called.
+ */
+public interface PlaybackClock {
+    /**
+     * Returns the current playback position in milliseconds.
+     */
+    @MainThread
+    long getPositionMs();
+
+    /**
+     * Returns the duration of the media in milliseconds, or a non-positive value while unknown.
+     */
+    @MainThread
+    long getDurationMs();
+
+    /**
+     * Returns whether the position is advancing. While it is, the view keeps reading the clock
+     * every frame and extrapolates between position updates so players that report coarse
+     * positions still draw smoothly.
+     */
+    @MainThread
+    default boolean isPlaying() {
+        return true;
+    }
+}
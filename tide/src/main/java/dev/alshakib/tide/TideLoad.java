@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import android.os.Handler;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Handle to a waveform load started by {@link TideView#loadRawData},
+ * {@link TideView#loadMediaUri} or {@link TideView#loadPeaksFile}. A load is cancelled when
+ * {@link #cancel()} is called or when a new source replaces it. Detaching the view only
+ * interrupts it, and it starts over once the view is attached again. The loader checks for
+ * cancellation between decoded buffers, so a stale load stops reading shortly after.
+ */
+public final class TideLoad {
+    private final Handler handler;
+
+    private volatile Task task;
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private volatile int generation;
+    private volatile Runnable pendingRun;
+    private boolean interrupted;
+
+    TideLoad(@NonNull Handler handler, @NonNull Task task) {
+        this.handler = handler;
+        this.task = task;
+    }
+
+    /**
+     * Stops the load. A load that already delivered its waveform is left alone. Either way the
+     * load lets go of its source, so a handle kept around does not keep the input alive.
+     */
+    @AnyThread
+    public void cancel() {
+        if (done) {
+            return;
+        }
+        cancelled = true;
+        task = null;
+        removePendingRun();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns {@code true} once the waveform has been handed to the view.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @MainThread
+    void start() {
+        interrupted = false;
+        Token token = new Token(this, generation);
+        Runnable run = () -> {
+            Task task = this.task;
+            if (task == null || token.isStopped()) {
+                return;
+            }
+            try {
+                task.run(token);
+            } catch (CancellationException ignored) {
+                // Superseded, nothing to deliver
+            }
+        };
+        pendingRun = run;
+        handler.post(run);
+    }
+
+    @MainThread
+    void interrupt() {
+        if (done || cancelled) {
+            return;
+        }
+        interrupted = true;
+        ++generation;
+        removePendingRun();
+    }
+
+    @MainThread
+    boolean isInterrupted() {
+        return interrupted;
+    }
+
+    private void removePendingRun() {
+        Runnable run = pendingRun;
+        if (run != null) {
+            handler.removeCallbacks(run);
+        }
+    }
+
+    interface Task {
+        void run(@NonNull Token token);
+    }
+
+    /**
+     * One attempt at a load. It goes stale when the load is cancelled or interrupted, even if the
+     * load is later started again.
+     */
+    static final class Token {
+        private final TideLoad load;
+        private final int generation;
+
+        Token(@NonNull TideLoad load, int generation) {
+            this.load = load;
+            this.generation = generation;
+        }
+
+        boolean isStopped() {
+            return load.cancelled || load.generation != generation;
+        }
+
+        void throwIfStopped() {
+            if (isStopped()) {
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * Marks the load as delivered, unless this attempt went stale. Returns {@code true} if
+         * the caller should go on and apply the result.
+         */
+        @MainThread
+        boolean deliver() {
+            if (isStopped()) {
+                return false;
+            }
+            load.done = true;
+            load.task = null;
+            load.pendingRun = null;
+            return true;
+        }
+    }
+}
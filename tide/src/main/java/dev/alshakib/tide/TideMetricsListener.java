@@ -0,0 +1,279 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+/**
+ * Receives timings and counters from the waveform pipeline of a {@link TideView}, e.g. to feed
+ * them into app telemetry. Both callbacks run on the main thread. While the view has no listener
+ * other than {@link #NO_OP} none of these numbers are collected.
+ */
+public interface TideMetricsListener {
+    TideMetricsListener NO_OP = new TideMetricsListener() { };
+
+    /**
+     * Called once per load, when the first frame showing the loaded waveform is drawn.
+     */
+    @MainThread
+    default void onLoad(@NonNull TideView tideView, @NonNull LoadMetrics metrics) { }
+
+    /**
+     * Called for every newly rasterized frame as it is drawn. {@code metrics} is reused across
+     * calls and must not be kept.
+     */
+    @MainThread
+    default void onRedraw(@NonNull TideView tideView, @NonNull RedrawMetrics metrics) { }
+
+    final class LoadMetrics {
+        public enum Source { MEDIA_URI, RAW_DATA, PEAKS_FILE }
+
+        public enum CacheResult { MEMORY_HIT, DISK_HIT, MISS, UNCACHED }
+
+        final Source source;
+        final long startNanos;
+        CacheResult cacheResult;
+        long queueNanos;
+        long cacheNanos;
+        long decodeNanos;
+        long sampleNanos;
+        long cacheWriteNanos;
+        long deliveryNanos;
+        long resampleNanos;
+        long firstFrameNanos;
+        long totalNanos;
+        long sourceSize;
+        long sampleCount;
+        long frameCount;
+        int chunkCount;
+
+        LoadMetrics(@NonNull Source source, long startNanos) {
+            this.source = source;
+            this.startNanos = startNanos;
+            this.cacheResult = CacheResult.UNCACHED;
+            this.sourceSize = -1L;
+        }
+
+        @NonNull
+        public Source getSource() {
+            return source;
+        }
+
+        @NonNull
+        public CacheResult getCacheResult() {
+            return cacheResult;
+        }
+
+        /**
+         * Time the load waited for the loader thread.
+         */
+        public long getQueueNanos() {
+            return queueNanos;
+        }
+
+        /**
+         * Time spent looking the waveform up in the memory and disk caches, or reading the peaks
+         * file for {@link Source#PEAKS_FILE}.
+         */
+        public long getCacheNanos() {
+            return cacheNanos;
+        }
+
+        /**
+         * Time spent inside the decoder, which includes reading the file.
+         */
+        public long getDecodeNanos() {
+            return decodeNanos;
+        }
+
+        /**
+         * Time spent reducing samples into the peak pyramid. Decoded sources are reduced on a
+         * pool thread while the next buffer is decoded, so this overlaps the decode time.
+         */
+        public long getSampleNanos() {
+            return sampleNanos;
+        }
+
+        public long getCacheWriteNanos() {
+            return cacheWriteNanos;
+        }
+
+        /**
+         * Time from the loader thread handing the waveform over to the main thread applying it,
+         * including the view's initial delay.
+         */
+        public long getDeliveryNanos() {
+            return deliveryNanos;
+        }
+
+        /**
+         * Time spent on the main thread turning the pyramid into the visible chunks.
+         */
+        public long getResampleNanos() {
+            return resampleNanos;
+        }
+
+        /**
+         * Time from the waveform being applied to its first frame being drawn, i.e. rasterization
+         * and the wait for the next draw pass.
+         */
+        public long getFirstFrameNanos() {
+            return firstFrameNanos;
+        }
+
+        /**
+         * Time from the load being requested to its first frame being drawn.
+         */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /**
+         * Size in bytes of the source this load decoded, of the raw array it sampled or of the
+         * peaks file it mapped, or -1 when unknown or when a cache served the load. This is the
+         * size of the input, not a count of bytes read, since a decoder may read ahead, seek or
+         * stop early.
+         */
+        public long getSourceSize() {
+            return sourceSize;
+        }
+
+        /**
+         * Number of PCM samples decoded, across all channels.
+         */
+        public long getSampleCount() {
+            return sampleCount;
+        }
+
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "LoadMetrics{" +
+                    "source=" + source +
+                    ", cacheResult=" + cacheResult +
+                    ", queueNanos=" + queueNanos +
+                    ", cacheNanos=" + cacheNanos +
+                    ", decodeNanos=" + decodeNanos +
+                    ", sampleNanos=" + sampleNanos +
+                    ", cacheWriteNanos=" + cacheWriteNanos +
+                    ", deliveryNanos=" + deliveryNanos +
+                    ", resampleNanos=" + resampleNanos +
+                    ", firstFrameNanos=" + firstFrameNanos +
+                    ", totalNanos=" + totalNanos +
+                    ", sourceSize=" + sourceSize +
+                    ", sampleCount=" + sampleCount +
+                    ", frameCount=" + frameCount +
+                    ", chunkCount=" + chunkCount +
+                    '}';
+        }
+    }
+
+    final class RedrawMetrics {
+        boolean live;
+        long rasterNanos;
+        long latencyNanos;
+        int chunkCount;
+        long redrawCount;
+        long requestCount;
+        long coalescedCount;
+
+        RedrawMetrics() { }
+
+        /**
+         * Returns {@code true} for frames of the live waveform, which only rasterize the chunks
+         * that arrived since the previous frame.
+         */
+        public boolean isLive() {
+            return live;
+        }
+
+        /**
+         * Time spent drawing the bars of this frame.
+         */
+        public long getRasterNanos() {
+            return rasterNanos;
+        }
+
+        /**
+         * Time from the frame being requested to it being drawn.
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        /**
+         * Number of chunks rasterized for this frame.
+         */
+        public int getChunkCount() {
+            return chunkCount;
+        }
+
+        /**
+         * Number of frames rasterized for the view so far.
+         */
+        public long getRedrawCount() {
+            return redrawCount;
+        }
+
+        /**
+         * Number of redraws requested for the view so far.
+         */
+        public long getRequestCount() {
+            return requestCount;
+        }
+
+        /**
+         * Number of requests merged into a later frame instead of being rasterized.
+         */
+        public long getCoalescedCount() {
+            return coalescedCount;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "RedrawMetrics{" +
+                    "live=" + live +
+                    ", rasterNanos=" + rasterNanos +
+                    ", latencyNanos=" + latencyNanos +
+                    ", chunkCount=" + chunkCount +
+                    ", redrawCount=" + redrawCount +
+                    ", requestCount=" + requestCount +
+                    ", coalescedCount=" + coalescedCount +
+                    '}';
+        }
+    }
+}
@@ -35,20 +35,25 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
-import android.graphics.RectF;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.animation.OvershootInterpolator;
+import android.widget.OverScroller;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.Dimension;
+import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.Px;
@@ -56,11 +61,19 @@ import androidx.annotation.RequiresApi;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.ColorUtils;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.Arrays;
 import java.util.Objects;
-import java.util.Random;
+
+import dev.alshakib.tide.TideMetricsListener.LoadMetrics;
+import dev.alshakib.tide.cache.WaveformBitmapPool;
+import dev.alshakib.tide.cache.WaveformDiskCache;
+import dev.alshakib.tide.cache.WaveformMemoryCache;
+import dev.alshakib.tide.decoder.AudioDecoderFactory;
+import dev.alshakib.tide.decoder.DefaultAudioDecoderFactory;
+import dev.alshakib.tide.sampler.PeakPyramid;
+import dev.alshakib.tide.sampler.PeaksFile;
+import dev.alshakib.tide.sampler.SampleReducer;
 
 public class TideView extends View implements ValueAnimator.AnimatorUpdateListener {
     private static final int DEFAULT_CHUNK_WIDTH_DP = 3;
@@ -74,13 +87,37 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     private static final int DEFAULT_PRIMARY_COLOR_ALPHA = 170;
     private static final boolean DEFAULT_ANIMATE_EXPANSION_STATUS = true;
     private static final boolean DEFAULT_SEEK_BAR_STATUS = true;
+    private static final boolean DEFAULT_MASK_RENDERING_STATUS = true;
+    private static final boolean DEFAULT_RMS_RENDERING_STATUS = false;
+    private static final boolean DEFAULT_ZOOMABLE_STATUS = false;
+    private static final long SEEK_IDLE_DELAY_MS = 150L;
+    private static final byte[] NO_RMS = new byte[0];
+    private static final SampleReducer[] SAMPLE_REDUCERS = {
+            SampleReducer.MAX_ABS, SampleReducer.RMS, SampleReducer.STRIDED_AVERAGE, SampleReducer.LTTB
+    };
+    private static final byte[][] NO_LANES = new byte[0][];
+
+    // Upper bound on how far the view runs ahead of a clock that stopped reporting new positions
+    private static final long MAX_CLOCK_EXTRAPOLATION_MS = 250L;
 
     private static final float VALUE_ANIMATOR_FROM = 0.0F;
     private static final float VALUE_ANIMATOR_TO = 1.0F;
 
-    private final Random random;
+    private static WaveformBitmapPool defaultBitmapPool;
 
     private OnTideViewChangeListener onTideViewChangeListener;
+    private TideMetricsListener metricsListener = TideMetricsListener.NO_OP;
+    private AudioDecoderFactory audioDecoderFactory;
+    private WaveformMemoryCache waveformMemoryCache;
+    private WaveformDiskCache waveformDiskCache;
+    private WaveformBitmapPool waveformBitmapPool;
+    private volatile TideLoad currentLoad;
+    private PlaybackClock playbackClock;
+    private final Choreographer.FrameCallback clockFrameCallback = this::onClockFrame;
+    private boolean clockFramePosted;
+    private long clockPositionMs = -1L;
+    private long clockFrameNanos;
+    private float clockFraction = -1.0F;
 
     private int chunkColor;
     private int chunkMaxHeight;
@@ -95,19 +132,56 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     private float downTouchY;
     private boolean animateExpansion;
     private boolean isSeekBar;
+    private boolean maskRendering;
+    private boolean rmsRendering;
+    private boolean zoomable;
+    private SeekPolicy seekPolicy = SeekPolicy.IMMEDIATE;
+    private ChannelLayout channelLayout = ChannelLayout.MIXED;
+    private SampleReducer sampleReducer = SampleReducer.MAX_ABS;
+    private boolean seekPending;
+    private boolean seekPosted;
+    private final Runnable seekDispatcher = this::dispatchPendingSeek;
     private boolean isActionMoved;
     private boolean isDragging;
+    private boolean isPanning;
+    private boolean isTouchCancelled;
     private boolean isTrackingTouch;
+    private float lastTouchX;
+    private int touchSlop;
 
     private long initialDelay;
 
     private byte[] scaledData;
-    private byte[] rawData;
+    private byte[] scaledRms = NO_RMS;
+    private byte[][] scaledLanes = NO_LANES;
+    private byte[][] scaledLaneRms = NO_LANES;
+    private PeakPyramid peakPyramid;
 
     private ValueAnimator expansionAnimator;
     private Paint wavePaint;
     private Paint waveFilledPaint;
-    private Bitmap waveBitmap;
+    private boolean batchedRendering = true;
+    private int editDepth;
+    private boolean editRedraw;
+    private boolean editResample;
+    private int rasterWidth;
+    private int rasterHeight;
+
+    private final WaveformRasterizer waveRasterizer = new WaveformRasterizer(this);
+    private final WaveformRasterizer.Frame rasterFrame = new WaveformRasterizer.Frame();
+    private final LiveWaveform liveWaveform = new LiveWaveform();
+    private volatile boolean liveMode;
+
+    private final WaveformViewport viewport = new WaveformViewport();
+    private ScaleGestureDetector scaleGestureDetector;
+    private GestureDetector gestureDetector;
+    private OverScroller scroller;
+    private long visibleFirstChunk;
+
+    private final TideMetricsListener.RedrawMetrics redrawMetrics = new TideMetricsListener.RedrawMetrics();
+    private LoadMetrics pendingLoadMetrics;
+    private long pendingLoadAppliedNanos;
+    private long liveRedrawCount;
 
     public TideView(Context context) {
         this(context, null);
@@ -124,7 +198,18 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     public TideView(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
         super(context, attrs, defStyleAttr, defStyleRes);
         setWillNotDraw(false);
-        this.random = new Random();
+        this.audioDecoderFactory = new DefaultAudioDecoderFactory();
+        this.waveformMemoryCache = WaveformLoader.getDefaultMemoryCache(context);
+        this.waveformBitmapPool = getDefaultBitmapPool(context);
+        this.waveRasterizer.setBitmapPool(waveformBitmapPool);
+        this.liveWaveform.setBitmapPool(waveformBitmapPool);
+        if (context != null) {
+            this.waveformDiskCache = WaveformLoader.getDefaultDiskCache(context);
+            this.touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+            this.scaleGestureDetector = new ScaleGestureDetector(context, new ScaleListener());
+            this.gestureDetector = new GestureDetector(context, new FlingListener());
+            this.scroller = new OverScroller(context);
+        }
         if (context != null && attrs != null) {
             TypedArray typedArray = getContext().getTheme()
                     .obtainStyledAttributes(attrs, R.styleable.TideView, defStyleAttr, defStyleRes);
@@ -161,6 +246,17 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
                         DEFAULT_ANIMATE_EXPANSION_STATUS);
                 isSeekBar = typedArray.getBoolean(R.styleable.TideView_tideSeekBar,
                         DEFAULT_SEEK_BAR_STATUS);
+                maskRendering = typedArray.getBoolean(R.styleable.TideView_tideMaskRendering,
+                        DEFAULT_MASK_RENDERING_STATUS);
+                rmsRendering = typedArray.getBoolean(R.styleable.TideView_tideRmsRendering,
+                        DEFAULT_RMS_RENDERING_STATUS);
+                sampleReducer = SAMPLE_REDUCERS[typedArray.getInt(R.styleable.TideView_tideSampleReducer, 0)];
+                zoomable = typedArray.getBoolean(R.styleable.TideView_tideZoomable,
+                        DEFAULT_ZOOMABLE_STATUS);
+                seekPolicy = SeekPolicy.values()[typedArray.getInt(R.styleable.TideView_tideSeekPolicy,
+                        SeekPolicy.IMMEDIATE.ordinal())];
+                channelLayout = ChannelLayout.values()[typedArray.getInt(R.styleable.TideView_tideChannelLayout,
+                        ChannelLayout.MIXED.ordinal())];
                 typedArray.recycle();
             }
             this.scaledData = new byte[0];
@@ -171,21 +267,36 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
             valueAnimator.addUpdateListener(this);
             this.expansionAnimator = valueAnimator;
             this.wavePaint = getSmoothPaint(ColorUtils.setAlphaComponent(chunkColor, TideView.DEFAULT_PRIMARY_COLOR_ALPHA));
-            this.waveFilledPaint = getFilterPaint(this.chunkColor);
+            this.waveFilledPaint = getFilledPaint(this.chunkColor);
         }
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        if (canvas != null) {
+        if (liveMode) {
+            drawLiveData(canvas);
+            return;
+        }
+        Bitmap waveBitmap = waveRasterizer.acquireFrontBuffer();
+        if (metricsListener != TideMetricsListener.NO_OP && waveRasterizer.pollFrameMetrics(redrawMetrics)) {
+            dispatchFrameMetrics();
+        }
+        if (canvas != null && waveBitmap != null) {
+            // The buffer may lag behind the viewport, so place it by the chunk it was drawn from
+            float waveLeft = (float) (waveRasterizer.getFrontFirstChunk() * getChunkStepWidth() - getScrollPx());
+            float progressX = getProgressX();
+            // Each side of the progress line is composited once, and a pass that falls outside
+            // the dirty strip of a progress update is skipped
             canvas.save();
-            canvas.clipRect(0.0F, 0.0F, (float) getWidth(), (float) getHeight());
-            canvas.drawBitmap(waveBitmap, 0.0F, 0.0F, wavePaint);
+            if (canvas.clipRect(progressX, 0.0F, (float) getWidth(), (float) getHeight())) {
+                canvas.drawBitmap(waveBitmap, waveLeft, 0.0F, wavePaint);
+            }
             canvas.restore();
             canvas.save();
-            canvas.clipRect(0.0F, 0.0F, (float) getWidth() * getProgressFactor(), (float) getHeight());
-            canvas.drawBitmap(waveBitmap, 0.0F, 0.0F, waveFilledPaint);
+            if (canvas.clipRect(0.0F, 0.0F, progressX, (float) getHeight())) {
+                canvas.drawBitmap(waveBitmap, waveLeft, 0.0F, waveFilledPaint);
+            }
             canvas.restore();
         }
     }
@@ -193,11 +304,13 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     @SuppressLint("DrawAllocation")
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        if (!isBitmapFits(this.waveBitmap, getWidth(), getHeight())) {
+        if (rasterWidth != getWidth() || rasterHeight != getHeight()) {
             if (changed) {
-                safeRecycle(this.waveBitmap);
-                this.waveBitmap = Bitmap.createBitmap(getWidth(), getHeight(), Bitmap.Config.ARGB_8888);
-                if (this.scaledData.length == 0) {
+                rasterWidth = getWidth();
+                rasterHeight = getHeight();
+                if (this.peakPyramid != null) {
+                    this.setScaledData(sampleVisiblePeaks(this.peakPyramid));
+                } else if (this.scaledData.length == 0) {
                     this.setScaledData(new byte[0]);
                 } else {
                     this.setScaledData(this.scaledData);
@@ -206,24 +319,68 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (currentLoad != null && currentLoad.isInterrupted()) {
+            currentLoad.start();
+        }
+        if (playbackClock != null) {
+            postClockFrame();
+        }
+        redrawData();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (expansionAnimator != null) {
+            expansionAnimator.cancel();
+        }
+        if (currentLoad != null) {
+            currentLoad.interrupt();
+        }
+        removeClockFrame();
+        waveRasterizer.release();
+        liveWaveform.release();
+    }
+
     @SuppressLint({"ClickableViewAccessibility"})
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        if (!isSeekBar || !isEnabled()) {
+        if (!isEnabled() || (!isSeekBar && !isZoomGestureEnabled())) {
             return false;
         }
-        switch(event.getAction()) {
+        if (isZoomGestureEnabled()) {
+            scaleGestureDetector.onTouchEvent(event);
+            gestureDetector.onTouchEvent(event);
+            if (scaleGestureDetector.isInProgress() || event.getPointerCount() > 1) {
+                cancelTouchGesture();
+                return true;
+            }
+        }
+        switch(event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN: {
                 isDragging = false;
+                isPanning = false;
                 isActionMoved = false;
+                isTouchCancelled = false;
                 isTrackingTouch = false;
                 downTouchX = event.getX();
                 downTouchY = event.getY();
+                lastTouchX = downTouchX;
+                if (scroller != null) {
+                    scroller.forceFinished(true);
+                }
                 return true;
             }
             case MotionEvent.ACTION_UP: {
                 isDragging = false;
-                if (!isActionMoved) {
+                if (isPanning || isTouchCancelled) {
+                    isPanning = false;
+                    return true;
+                }
+                if (!isActionMoved && isSeekBar) {
                     startTrackingTouch();
                     setProgress(toProgress(event), true);
                     stopTrackingTouch();
@@ -233,6 +390,14 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
                 return false;
             }
             case MotionEvent.ACTION_MOVE: {
+                if (isTouchCancelled) {
+                    return true;
+                }
+                if (isPanning) {
+                    scrollViewportBy(lastTouchX - event.getX());
+                    lastTouchX = event.getX();
+                    return true;
+                }
                 if (isDragging) {
                     startTrackingTouch();
                     setProgress(toProgress(event), true);
@@ -241,18 +406,41 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
                 float deltaX = Math.abs(downTouchX - event.getX());
                 float deltaY = Math.abs(downTouchY - event.getY());
                 if (deltaX > deltaY) {
-                    isDragging = true;
-                    startTrackingTouch();
-                    setProgress(toProgress(event), true);
-                    return true;
+                    // Once zoomed in, a drag seeks only when it starts on the progress position
+                    if (isZoomGestureEnabled() && viewport.isZoomed()
+                            && (!isSeekBar || Math.abs(downTouchX - getProgressX()) > touchSlop)) {
+                        isPanning = true;
+                        scrollViewportBy(lastTouchX - event.getX());
+                        lastTouchX = event.getX();
+                        return true;
+                    }
+                    if (isSeekBar) {
+                        isDragging = true;
+                        startTrackingTouch();
+                        setProgress(toProgress(event), true);
+                        return true;
+                    }
                 }
                 isActionMoved = true;
                 return false;
             }
+            case MotionEvent.ACTION_CANCEL: {
+                cancelTouchGesture();
+                return true;
+            }
         }
         return true;
     }
 
+    @Override
+    public void computeScroll() {
+        super.computeScroll();
+        if (scroller != null && scroller.computeScrollOffset()) {
+            setScrollPx(scroller.getCurrX());
+            postInvalidateOnAnimation();
+        }
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
@@ -264,7 +452,7 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     @Override
     public void onAnimationUpdate(ValueAnimator valueAnimator) {
         if (valueAnimator != null) {
-            redrawData(new Canvas(waveBitmap), valueAnimator.getAnimatedFraction());
+            redrawData(valueAnimator.getAnimatedFraction());
         }
     }
 
@@ -298,12 +486,70 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         this.onTideViewChangeListener = listener;
     }
 
+    @NonNull
+    public TideMetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Sets the listener that receives load and redraw metrics. Passing {@code null} or
+     * {@link TideMetricsListener#NO_OP} turns collection off.
+     */
+    public void setMetricsListener(@Nullable TideMetricsListener listener) {
+        this.metricsListener = listener != null ? listener : TideMetricsListener.NO_OP;
+        this.pendingLoadMetrics = null;
+        waveRasterizer.setMetricsEnabled(metricsListener != TideMetricsListener.NO_OP);
+    }
+
+    @NonNull
+    public AudioDecoderFactory getAudioDecoderFactory() {
+        return audioDecoderFactory;
+    }
+
+    public void setAudioDecoderFactory(@NonNull AudioDecoderFactory factory) {
+        this.audioDecoderFactory = factory;
+    }
+
+    @Nullable
+    public WaveformMemoryCache getWaveformMemoryCache() {
+        return waveformMemoryCache;
+    }
+
+    public void setWaveformMemoryCache(@Nullable WaveformMemoryCache cache) {
+        this.waveformMemoryCache = cache;
+    }
+
+    @Nullable
+    public WaveformDiskCache getWaveformDiskCache() {
+        return waveformDiskCache;
+    }
+
+    public void setWaveformDiskCache(@Nullable WaveformDiskCache cache) {
+        this.waveformDiskCache = cache;
+    }
+
+    @Nullable
+    public WaveformBitmapPool getWaveformBitmapPool() {
+        return waveformBitmapPool;
+    }
+
+    public void setWaveformBitmapPool(@Nullable WaveformBitmapPool pool) {
+        this.waveformBitmapPool = pool;
+        waveRasterizer.setBitmapPool(pool);
+        liveWaveform.release();
+        liveWaveform.setBitmapPool(pool);
+    }
+
     public int getChunkMaxHeight() {
         return chunkMaxHeight;
     }
 
     public void setChunkMaxHeight(@Px int height) {
-        chunkMaxHeight = Math.min(Math.abs(height), getHeight());
+        height = Math.min(Math.abs(height), getHeight());
+        if (chunkMaxHeight == height) {
+            return;
+        }
+        chunkMaxHeight = height;
         redrawData();
     }
 
@@ -312,8 +558,12 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     }
 
     public void setChunkWidth(@Px int width) {
-        chunkWidth = Math.min(Math.abs(width), getWidth());
-        redrawData();
+        width = Math.min(Math.abs(width), getWidth());
+        if (chunkWidth == width) {
+            return;
+        }
+        chunkWidth = width;
+        resampleData();
     }
 
     public int getChunkSpacing() {
@@ -321,8 +571,12 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     }
 
     public void setChunkSpacing(@Px int space) {
-        chunkSpacing = Math.min(Math.abs(space), getWidth());
-        redrawData();
+        space = Math.min(Math.abs(space), getWidth());
+        if (chunkSpacing == space) {
+            return;
+        }
+        chunkSpacing = space;
+        resampleData();
     }
 
     public int getChunkRadius() {
@@ -330,7 +584,11 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     }
 
     public void setChunkRadius(@Px int value) {
-        chunkRadius = Math.abs(value);
+        value = Math.abs(value);
+        if (chunkRadius == value) {
+            return;
+        }
+        chunkRadius = value;
         redrawData();
     }
 
@@ -339,7 +597,11 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     }
 
     public void setChunkMinHeight(@Px int value) {
-        chunkMinHeight = Math.abs(value);
+        value = Math.abs(value);
+        if (chunkMinHeight == value) {
+            return;
+        }
+        chunkMinHeight = value;
         redrawData();
     }
 
@@ -348,9 +610,12 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
     }
 
     public void setChunkColor(@ColorInt int color) {
+        if (chunkColor == color && wavePaint != null) {
+            return;
+        }
         chunkColor = color;
         wavePaint = getSmoothPaint(ColorUtils.setAlphaComponent(color, DEFAULT_PRIMARY_COLOR_ALPHA));
-        waveFilledPaint = getFilterPaint(color);
+        waveFilledPaint = getFilledPaint(color);
         redrawData();
     }
 
@@ -368,6 +633,49 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
 
     public void setProgress(int progress) {
         setProgress(progress, false);
+        // A progress pushed while a paused clock is bound usually means the player seeked
+        pollPlaybackClock();
+    }
+
+    /**
+     * Binds the view to a playback clock. While bound, attached and
+     * {@link PlaybackClock#isPlaying() playing}, the view reads the clock on every display frame
+     * and moves the progress line itself, so the caller no longer has to push
+     * {@link #setProgress(int)} from a timer. {@link #getProgress()} and
+     * {@link OnTideViewChangeListener#onProgressChanged} follow the clock at the
+     * {@link #getMaxProgress()} resolution. A touch drag takes over the progress until the finger
+     * lifts. Pass {@code null} to unbind.
+     * <p>
+     * A clock that is not playing is read once and then left alone, so a paused view costs no
+     * frames. Call {@link #onPlaybackStateChanged()} when the player starts, pauses or seeks.
+     */
+    @MainThread
+    public void setPlaybackClock(@Nullable PlaybackClock clock) {
+        playbackClock = clock;
+        clockPositionMs = -1L;
+        if (clock == null) {
+            removeClockFrame();
+            if (clockFraction >= 0.0F) {
+                clockFraction = -1.0F;
+                invalidate();
+            }
+        } else {
+            pollPlaybackClock();
+        }
+    }
+
+    @Nullable
+    public PlaybackClock getPlaybackClock() {
+        return playbackClock;
+    }
+
+    /**
+     * Tells the view that the bound {@link PlaybackClock} started, paused, stopped or seeked. The
+     * view reads the clock on the next frame, and keeps reading it every frame while it plays.
+     */
+    @MainThread
+    public void onPlaybackStateChanged() {
+        pollPlaybackClock();
     }
 
     public long getAnimateExpansionDuration() {
@@ -395,77 +703,432 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         isSeekBar = seekBar;
     }
 
+    @NonNull
+    public SeekPolicy getSeekPolicy() {
+        return seekPolicy;
+    }
+
+    /**
+     * Sets how often a touch drag reports its position through
+     * {@link OnTideViewChangeListener#onProgressChanged} with {@code fromUser} set. The progress
+     * line follows the finger on every frame whatever the policy; only the listener calls, and
+     * so the seeks a player makes from them, are held back.
+     */
+    public void setSeekPolicy(@NonNull SeekPolicy policy) {
+        if (seekPolicy != policy) {
+            dispatchPendingSeek();
+            seekPolicy = policy;
+        }
+    }
+
+    @NonNull
+    public ChannelLayout getChannelLayout() {
+        return channelLayout;
+    }
+
+    /**
+     * Sets how multi-channel sources are drawn. Layouts other than {@link ChannelLayout#MIXED}
+     * only apply to waveforms loaded with per-channel lanes, i.e. from {@link #loadMediaUri} or a
+     * peaks file written from multi-channel audio; anything else is drawn mixed.
+     */
+    public void setChannelLayout(@NonNull ChannelLayout layout) {
+        if (channelLayout != layout) {
+            channelLayout = layout;
+            resampleData();
+        }
+    }
+
+    public boolean isMaskRendering() {
+        return maskRendering;
+    }
+
+    public void setMaskRendering(boolean mask) {
+        if (maskRendering != mask) {
+            maskRendering = mask;
+            waveFilledPaint = getFilledPaint(chunkColor);
+            redrawData();
+        }
+    }
+
+    @NonNull
+    public SampleReducer getSampleReducer() {
+        return sampleReducer;
+    }
+
+    /**
+     * Sets how the buckets under each chunk are reduced to its height. The default,
+     * {@link SampleReducer#MAX_ABS}, shows every peak; {@link SampleReducer#STRIDED_AVERAGE} is
+     * the cheapest and suits small thumbnails; {@link SampleReducer#LTTB} keeps the shape of
+     * detailed views. Live samples are always reduced to their largest peak.
+     */
+    public void setSampleReducer(@NonNull SampleReducer reducer) {
+        if (sampleReducer != reducer) {
+            sampleReducer = reducer;
+            resampleData();
+        }
+    }
+
+    public boolean isRmsRendering() {
+        return rmsRendering;
+    }
+
+    /**
+     * Draws each chunk as a translucent peak envelope with its RMS level as a solid body inside,
+     * so loud transients and sustained loudness can be told apart. Both come from the same pass
+     * over the loaded summary. Raw data and live samples only carry peaks and are drawn as usual.
+     */
+    public void setRmsRendering(boolean rms) {
+        if (rmsRendering != rms) {
+            rmsRendering = rms;
+            resampleData();
+        }
+    }
+
+    public boolean isBatchedRendering() {
+        return batchedRendering;
+    }
+
+    public void setBatchedRendering(boolean batched) {
+        if (batchedRendering == batched) {
+            return;
+        }
+        batchedRendering = batched;
+        redrawData();
+    }
+
+    /**
+     * Starts a batch of appearance changes. Nothing is redrawn until {@link Editor#apply()}, which
+     * rasterizes the waveform once no matter how many properties changed, and resamples it only
+     * if the chunk width, spacing or RMS rendering changed.
+     */
+    @NonNull
+    public Editor edit() {
+        return new Editor();
+    }
+
+    public boolean isZoomable() {
+        return zoomable;
+    }
+
+    public void setZoomable(boolean zoomable) {
+        this.zoomable = zoomable;
+        if (!zoomable) {
+            setZoom(WaveformViewport.MIN_ZOOM);
+        }
+    }
+
+    /**
+     * Returns how many view widths the whole waveform currently spans.
+     */
+    public float getZoom() {
+        return viewport.getZoom();
+    }
+
+    /**
+     * Zooms around the center of the view. The zoom is clamped to {@code [1, getMaxZoom()]}.
+     */
+    public void setZoom(float zoom) {
+        if (viewport.setZoom(zoom, 0.5F)) {
+            resampleData();
+        }
+    }
+
+    /**
+     * Returns the zoom at which each chunk maps to one bucket of the finest pyramid level.
+     */
+    public float getMaxZoom() {
+        return viewport.getMaxZoom();
+    }
+
+    /**
+     * Returns the left edge of the visible window as a fraction of the whole waveform.
+     */
+    public float getViewportOffset() {
+        return (float) viewport.getOffset();
+    }
+
+    public void setViewportOffset(float offset) {
+        if (viewport.setOffset(offset)) {
+            onViewportScrolled();
+        }
+    }
+
     public boolean isDragging() {
         return isDragging;
     }
 
+    public boolean isPanning() {
+        return isPanning;
+    }
+
     public int getChunksCount() {
         return getWidth() / getChunkStepWidth();
     }
 
+    /**
+     * Same as {@link #loadRawData(byte[])}, for callers that do not need a handle on the load.
+     */
     public void setRawData(@NonNull byte[] raw) {
-        post(() -> {
-            if (this.rawData == null || !Arrays.equals(this.rawData, raw)) {
-                this.rawData = raw;
-                submitScaledData(getSample(raw, getChunksCount()));
-            }
+        loadRawData(raw);
+    }
+
+    @NonNull
+    public TideLoad loadRawData(@NonNull byte[] raw) {
+        return loadRawData(raw, WaveformLoader.getDefaultHandler());
+    }
+
+    @NonNull
+    public TideLoad loadRawData(@NonNull byte[] raw, @NonNull Handler handler) {
+        LoadMetrics metrics = newLoadMetrics(LoadMetrics.Source.RAW_DATA);
+        return startLoad(handler, token -> {
+            onLoadStarted(metrics);
+            PeakPyramid pyramid = WaveformLoader.sample(raw, metrics);
+            token.throwIfStopped();
+            submitPeakPyramid(pyramid, metrics, token);
         });
     }
 
+    /**
+     * Appends 16-bit PCM samples to the live waveform, switching the view to live mode and
+     * cancelling a load that has not delivered its waveform yet. Every
+     * {@link #getLiveSamplesPerChunk()} samples become one chunk; once the view is full it
+     * scrolls so the newest chunk stays at the right edge. Safe to call from any thread.
+     */
+    public void appendSamples(@NonNull short[] samples, int offset, int length) {
+        enterLiveMode();
+        if (liveWaveform.append(samples, offset, length)) {
+            postInvalidateOnAnimation();
+        }
+    }
+
+    /**
+     * Float variant of {@link #appendSamples(short[], int, int)} for samples in {@code [-1, 1]}.
+     */
+    public void appendSamples(@NonNull float[] samples, int offset, int length) {
+        enterLiveMode();
+        if (liveWaveform.append(samples, offset, length)) {
+            postInvalidateOnAnimation();
+        }
+    }
+
+    /**
+     * Drops every appended sample, leaving the view in live mode with an empty waveform.
+     */
+    public void clearSamples() {
+        enterLiveMode();
+        liveWaveform.clear();
+        postInvalidateOnAnimation();
+    }
+
+    public int getLiveSamplesPerChunk() {
+        return liveWaveform.getSamplesPerChunk();
+    }
+
+    public void setLiveSamplesPerChunk(int samples) {
+        liveWaveform.setSamplesPerChunk(samples);
+    }
+
+    public boolean isLiveMode() {
+        return liveMode;
+    }
+
+    /**
+     * Same as {@link #loadMediaUri(Uri)}, for callers that do not need a handle on the load.
+     */
     public void setMediaUri(@NonNull Uri uri) {
-        post(() -> {
+        loadMediaUri(uri);
+    }
+
+    /**
+     * Same as {@link #loadMediaUri(Uri, Handler)}, for callers that do not need a handle on the
+     * load.
+     */
+    public void setMediaUri(@NonNull Uri uri, @NonNull Handler handler) {
+        loadMediaUri(uri, handler);
+    }
+
+    @NonNull
+    public TideLoad loadMediaUri(@NonNull Uri uri) {
+        return loadMediaUri(uri, WaveformLoader.getDefaultHandler());
+    }
+
+    @NonNull
+    public TideLoad loadMediaUri(@NonNull Uri uri, @NonNull Handler handler) {
+        AudioDecoderFactory factory = audioDecoderFactory;
+        WaveformMemoryCache memoryCache = waveformMemoryCache;
+        WaveformDiskCache diskCache = waveformDiskCache;
+        LoadMetrics metrics = newLoadMetrics(LoadMetrics.Source.MEDIA_URI);
+        return startLoad(handler, token -> {
             try {
-                InputStream stream = getContext()
-                        .getContentResolver().openInputStream(uri);
-                if (stream != null) {
-                    byte[] bytes = new byte[stream.available()];
-                    stream.read(bytes);
-                    stream.close();
-                    if (this.rawData == null || !Arrays.equals(this.rawData, bytes)) {
-                        this.rawData = bytes;
-                        submitScaledData(getSample(bytes, getChunksCount()));
-                    }
-                }
+                onLoadStarted(metrics);
+                submitPeakPyramid(WaveformLoader.load(getContext(), uri, factory, memoryCache, diskCache,
+                        metrics, token), metrics, token);
             } catch (IOException e) {
                 e.printStackTrace();
             }
         });
     }
 
-    public void setMediaUri(@NonNull Uri uri, @NonNull Handler handler) {
-        post(() -> {
-            int chunkCount = getChunksCount();
-            handler.post(() -> {
-                try {
-                    InputStream stream = getContext()
-                            .getContentResolver().openInputStream(uri);
-                    if (stream != null) {
-                        byte[] bytes = new byte[stream.available()];
-                        stream.read(bytes);
-                        stream.close();
-                        if (this.rawData == null || !Arrays.equals(this.rawData, bytes)) {
-                            this.rawData = bytes;
-                            submitScaledData(getSample(bytes, chunkCount));
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
+    /**
+     * Same as {@link #loadPeaksFile(File)}, for callers that do not need a handle on the load.
+     */
+    public void setPeaksFile(@NonNull File file) {
+        loadPeaksFile(file);
+    }
+
+    /**
+     * Loads a waveform precomputed with {@link PeaksFile}, e.g. by the {@code tide-peaks}
+     * command-line tool, without decoding any audio.
+     */
+    @NonNull
+    public TideLoad loadPeaksFile(@NonNull File file) {
+        return loadPeaksFile(file, WaveformLoader.getDefaultHandler());
+    }
+
+    @NonNull
+    public TideLoad loadPeaksFile(@NonNull File file, @NonNull Handler handler) {
+        LoadMetrics metrics = newLoadMetrics(LoadMetrics.Source.PEAKS_FILE);
+        return startLoad(handler, token -> {
+            try {
+                onLoadStarted(metrics);
+                PeakPyramid pyramid = PeaksFile.read(file, null);
+                if (pyramid == null) {
+                    throw new IOException("Unsupported peaks file version: " + file);
+                }
+                if (metrics != null) {
+                    metrics.cacheNanos = System.nanoTime() - metrics.startNanos - metrics.queueNanos;
+                    metrics.sourceSize = file.length();
                 }
-            });
+                token.throwIfStopped();
+                submitPeakPyramid(pyramid, metrics, token);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         });
     }
 
-    private void submitScaledData(final byte[] data) {
+    /**
+     * Cancels the load started by the last {@code load*} or {@code set*} call for raw data, a
+     * media URI or a peaks file, if it has not delivered its waveform yet.
+     */
+    public void cancelLoad() {
+        if (currentLoad != null) {
+            currentLoad.cancel();
+            currentLoad = null;
+        }
+    }
+
+    @NonNull
+    private TideLoad startLoad(@NonNull Handler handler, @NonNull TideLoad.Task task) {
+        cancelLoad();
+        TideLoad load = new TideLoad(handler, task);
+        currentLoad = load;
+        load.start();
+        return load;
+    }
+
+    /**
+     * Switches the view to live mode. A load still in flight is cancelled, so it cannot replace
+     * the live waveform once it finishes.
+     */
+    private void enterLiveMode() {
+        if (liveMode) {
+            return;
+        }
+        liveMode = true;
+        TideLoad load = currentLoad;
+        if (load != null) {
+            load.cancel();
+        }
+    }
+
+    private void submitPeakPyramid(@NonNull PeakPyramid pyramid, @Nullable LoadMetrics metrics,
+                                   @NonNull TideLoad.Token token) {
+        long submittedNanos = metrics != null ? System.nanoTime() : 0L;
         postDelayed(() -> {
-            setScaledData(data);
+            if (!token.deliver()) {
+                return;
+            }
+            currentLoad = null;
+            long appliedNanos = metrics != null ? System.nanoTime() : 0L;
+            if (metrics != null) {
+                metrics.deliveryNanos = appliedNanos - submittedNanos;
+                metrics.frameCount = pyramid.getFrameCount();
+            }
+            if (!liveMode && this.peakPyramid != null
+                    && this.peakPyramid.getFingerprint() == pyramid.getFingerprint()) {
+                // Already on screen, so the load is complete right away
+                if (metrics != null) {
+                    metrics.chunkCount = scaledData.length;
+                    dispatchLoadMetrics(metrics, appliedNanos);
+                }
+                return;
+            }
+            if (liveMode) {
+                liveMode = false;
+                liveWaveform.clear();
+                liveWaveform.release();
+            }
+            this.peakPyramid = pyramid;
+            if (scroller != null) {
+                scroller.forceFinished(true);
+            }
+            viewport.reset();
+            byte[] peaks = sampleVisiblePeaks(pyramid);
+            if (metrics != null) {
+                metrics.resampleNanos = System.nanoTime() - appliedNanos;
+                metrics.chunkCount = peaks.length;
+                pendingLoadMetrics = metrics;
+                pendingLoadAppliedNanos = appliedNanos;
+            }
+            setScaledData(peaks);
             if (getAnimateExpansion()) {
                 animateExpansion();
             }
         }, initialDelay);
     }
 
+    @NonNull
+    private static synchronized WaveformBitmapPool getDefaultBitmapPool(@Nullable Context context) {
+        if (defaultBitmapPool == null) {
+            defaultBitmapPool = context != null ? new WaveformBitmapPool(context) : new WaveformBitmapPool();
+        }
+        return defaultBitmapPool;
+    }
+
+    @Nullable
+    private LoadMetrics newLoadMetrics(@NonNull LoadMetrics.Source source) {
+        return metricsListener != TideMetricsListener.NO_OP ? new LoadMetrics(source, System.nanoTime()) : null;
+    }
+
+    private static void onLoadStarted(@Nullable LoadMetrics metrics) {
+        if (metrics != null) {
+            metrics.queueNanos = System.nanoTime() - metrics.startNanos;
+        }
+    }
+
+    private void dispatchFrameMetrics() {
+        metricsListener.onRedraw(this, redrawMetrics);
+        LoadMetrics metrics = pendingLoadMetrics;
+        if (metrics != null && waveRasterizer.getFrontRequestNanos() >= pendingLoadAppliedNanos) {
+            pendingLoadMetrics = null;
+            dispatchLoadMetrics(metrics, pendingLoadAppliedNanos);
+        }
+    }
+
+    private void dispatchLoadMetrics(@NonNull LoadMetrics metrics, long appliedNanos) {
+        long now = System.nanoTime();
+        metrics.firstFrameNanos = now - appliedNanos;
+        metrics.totalNanos = now - metrics.startNanos;
+        metricsListener.onLoad(this, metrics);
+    }
+
     private void startTrackingTouch() {
         if (!isTrackingTouch) {
+            if (clockFraction >= 0.0F) {
+                // The line jumps from the clock position to the finger
+                invalidate();
+            }
             if (onTideViewChangeListener != null) {
                 onTideViewChangeListener.onStartTrackingTouch(this);
             }
@@ -475,6 +1138,10 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
 
     private void stopTrackingTouch() {
         if (isTrackingTouch) {
+            dispatchPendingSeek();
+            if (clockFraction >= 0.0F) {
+                invalidate();
+            }
             if (onTideViewChangeListener != null) {
                 onTideViewChangeListener.onStopTrackingTouch(this);
             }
@@ -486,21 +1153,125 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         return chunkWidth + chunkSpacing;
     }
 
-    private int getCenterY() {
-        return getHeight() / 2;
-    }
-
     private float getProgressFactor() {
+        if (clockFraction >= 0.0F && !isTrackingTouch) {
+            return clockFraction;
+        }
         return (float) progress / (float) maxProgress;
     }
 
+    private float getProgressX() {
+        return Math.max(0.0F, Math.min(1.0F, viewport.toView(getProgressFactor()))) * getWidth();
+    }
+
+    private boolean isZoomGestureEnabled() {
+        return zoomable && !liveMode && scaleGestureDetector != null && peakPyramid != null;
+    }
+
+    private double getContentWidth() {
+        return (double) getWidth() * viewport.getZoom();
+    }
+
+    private double getScrollPx() {
+        return viewport.getOffset() * getContentWidth();
+    }
+
+    private void setScrollPx(double scrollPx) {
+        double contentWidth = getContentWidth();
+        if (contentWidth > 0.0 && viewport.setOffset(scrollPx / contentWidth)) {
+            onViewportScrolled();
+        }
+    }
+
+    private void scrollViewportBy(float deltaX) {
+        setScrollPx(getScrollPx() + deltaX);
+    }
+
+    // Bars are only resampled when the scroll crosses a chunk boundary, otherwise the current
+    // buffer is just drawn at a new offset
+    private void onViewportScrolled() {
+        int stepWidth = getChunkStepWidth();
+        if (peakPyramid != null && stepWidth > 0 && (long) (getScrollPx() / stepWidth) != visibleFirstChunk) {
+            resampleData();
+        }
+        invalidate();
+    }
+
+    private void cancelTouchGesture() {
+        isDragging = false;
+        isPanning = false;
+        isActionMoved = true;
+        isTouchCancelled = true;
+        stopTrackingTouch();
+    }
+
+    /**
+     * Samples the chunks inside the viewport, plus one for the partially visible chunk at the
+     * right edge while zoomed in. Chunks are aligned to a grid over the whole waveform so that
+     * panning shifts bars instead of resampling them at a different phase.
+     */
+    @NonNull
+    private byte[] sampleVisiblePeaks(@NonNull PeakPyramid pyramid) {
+        int stepWidth = getChunkStepWidth();
+        if (getWidth() > 0 && stepWidth > 0) {
+            viewport.setMaxZoom((float) pyramid.getLevel(0).getSize() * stepWidth / getWidth());
+        }
+        long firstChunk = 0L;
+        int count = stepWidth > 0 ? getChunksCount() : 0;
+        double start = 0.0;
+        double end = 1.0;
+        if (viewport.isZoomed() && stepWidth > 0) {
+            double chunksPerSource = getContentWidth() / stepWidth;
+            firstChunk = (long) (getScrollPx() / stepWidth);
+            count = getChunksCount() + 1;
+            start = firstChunk / chunksPerSource;
+            end = (firstChunk + count) / chunksPerSource;
+        }
+        byte[] peaks = new byte[count];
+        byte[] rms = rmsRendering ? new byte[count] : null;
+        reducePeaks(pyramid, peaks, rms, start, end);
+        int laneCount = channelLayout != ChannelLayout.MIXED ? pyramid.getLaneCount() : 0;
+        if (channelLayout == ChannelLayout.MIRRORED) {
+            laneCount = Math.min(laneCount, 2);
+        }
+        if (laneCount > 1) {
+            byte[][] lanes = new byte[laneCount][count];
+            byte[][] laneRms = rmsRendering ? new byte[laneCount][count] : NO_LANES;
+            for (int i = 0; i < laneCount; ++i) {
+                reducePeaks(pyramid.getLane(i), lanes[i], rmsRendering ? laneRms[i] : null, start, end);
+            }
+            scaledLanes = lanes;
+            scaledLaneRms = laneRms;
+        } else {
+            scaledLanes = NO_LANES;
+            scaledLaneRms = NO_LANES;
+        }
+        scaledRms = rms != null ? rms : NO_RMS;
+        visibleFirstChunk = firstChunk;
+        return peaks;
+    }
+
+    // The default reducer shares its pass over the buckets with the RMS layer
+    private void reducePeaks(@NonNull PeakPyramid pyramid, @NonNull byte[] peaks, @Nullable byte[] rms,
+                             double start, double end) {
+        if (sampleReducer == SampleReducer.MAX_ABS) {
+            pyramid.getPeaks(peaks, rms, 0, peaks.length, start, end);
+            return;
+        }
+        pyramid.getPeaks(peaks, 0, peaks.length, start, end, sampleReducer);
+        if (rms != null) {
+            pyramid.getPeaks(rms, 0, rms.length, start, end, SampleReducer.RMS);
+        }
+    }
+
     private void setScaledData(@NonNull byte[] bytes) {
         scaledData = bytes.length <= getChunksCount() ? paste(new byte[this.getChunksCount()], bytes) : bytes;
         redrawData();
     }
 
     private int toProgress(@NonNull MotionEvent motionEvent) {
-        return (int) (Math.min(motionEvent.getX(), Math.max(getWidth(), 0)) / getWidth() * maxProgress);
+        float viewFraction = Math.min(motionEvent.getX(), Math.max(getWidth(), 0)) / getWidth();
+        return (int) (viewport.toSource(viewFraction) * maxProgress);
     }
 
     private void setProgress(int progress, boolean fromUser) {
@@ -510,38 +1281,222 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
             progress = maxProgress;
         }
         if (this.progress != progress) {
+            float oldX = getProgressX();
             this.progress = progress;
-            postInvalidate();
-            if (onTideViewChangeListener != null) {
+            invalidateProgress(oldX, getProgressX());
+            if (fromUser && isTrackingTouch && seekPolicy != SeekPolicy.IMMEDIATE) {
+                scheduleSeek();
+            } else if (onTideViewChangeListener != null) {
                 onTideViewChangeListener.onProgressChanged(this, this.progress, fromUser);
             }
         }
     }
 
-    private void redrawData(Canvas canvas, float factor) {
-        post(() -> {
-            if (this.waveBitmap != null) {
-                safeEraseColor(this.waveBitmap);
-                for (int i = 0; i < this.scaledData.length; ++i) {
-                    int chunkHeight = (int) ((float) scaledData[i] / (float) Byte.MAX_VALUE * (chunkMaxHeight / 2.0F));
-                    int clampedHeight = Math.max(chunkHeight, chunkMinHeight);
-                    float heightDiff = (float) (clampedHeight - chunkMinHeight);
-                    int animatedDiff = (int) (heightDiff * factor);
-                    RectF rectF = new RectF(chunkSpacing / 2F + i * getChunkStepWidth(),
-                            getCenterY() - chunkMinHeight - animatedDiff,
-                            chunkSpacing / 2F + i * getChunkStepWidth() + chunkWidth,
-                            getCenterY() + chunkMinHeight + animatedDiff);
-                    canvas.drawRoundRect(rectF, chunkRadius, chunkRadius, wavePaint);
+    private void scheduleSeek() {
+        seekPending = true;
+        switch (seekPolicy) {
+            case PER_FRAME:
+                if (!seekPosted) {
+                    seekPosted = true;
+                    postOnAnimation(seekDispatcher);
                 }
-                postInvalidate();
+                break;
+            case ON_IDLE:
+                removeCallbacks(seekDispatcher);
+                seekPosted = true;
+                postDelayed(seekDispatcher, SEEK_IDLE_DELAY_MS);
+                break;
+            default:
+                // ON_RELEASE waits for stopTrackingTouch
+                break;
+        }
+    }
+
+    private void dispatchPendingSeek() {
+        if (seekPosted) {
+            seekPosted = false;
+            removeCallbacks(seekDispatcher);
+        }
+        if (seekPending) {
+            seekPending = false;
+            if (onTideViewChangeListener != null) {
+                onTideViewChangeListener.onProgressChanged(this, progress, true);
             }
-        });
+        }
+    }
+
+    // Only the strip the progress line swept over changes, padded for the anti-aliased edges
+    private void invalidateProgress(float oldX, float newX) {
+        invalidateProgress(oldX, newX, false);
+    }
+
+    // Called with inFrame from a frame callback, where invalidating directly still makes this frame
+    private void invalidateProgress(float oldX, float newX, boolean inFrame) {
+        if (liveMode) {
+            if (inFrame) {
+                invalidate();
+            } else {
+                postInvalidateOnAnimation();
+            }
+            return;
+        }
+        if (oldX == newX) {
+            return;
+        }
+        int left = Math.max((int) Math.floor(Math.min(oldX, newX)) - 1, 0);
+        int right = Math.min((int) Math.ceil(Math.max(oldX, newX)) + 1, getWidth());
+        if (inFrame) {
+            invalidate(left, 0, right, getHeight());
+        } else {
+            postInvalidateOnAnimation(left, 0, right, getHeight());
+        }
+    }
+
+    private void pollPlaybackClock() {
+        if (playbackClock != null && isAttachedToWindow()) {
+            postClockFrame();
+        }
+    }
+
+    private void postClockFrame() {
+        if (!clockFramePosted) {
+            clockFramePosted = true;
+            Choreographer.getInstance().postFrameCallback(clockFrameCallback);
+        }
+    }
+
+    private void removeClockFrame() {
+        if (clockFramePosted) {
+            clockFramePosted = false;
+            Choreographer.getInstance().removeFrameCallback(clockFrameCallback);
+        }
+    }
+
+    private void onClockFrame(long frameTimeNanos) {
+        clockFramePosted = false;
+        PlaybackClock clock = playbackClock;
+        if (clock == null) {
+            return;
+        }
+        boolean playing = clock.isPlaying();
+        if (playing) {
+            postClockFrame();
+        }
+        long durationMs = clock.getDurationMs();
+        if (durationMs <= 0L || isTrackingTouch) {
+            return;
+        }
+        long positionMs = clock.getPositionMs();
+        float playedMs = positionMs;
+        if (positionMs != clockPositionMs) {
+            clockPositionMs = positionMs;
+            clockFrameNanos = frameTimeNanos;
+        } else if (playing) {
+            // Players often report the position coarser than the frame rate, so run ahead of it
+            long elapsedMs = (frameTimeNanos - clockFrameNanos) / 1_000_000L;
+            playedMs += Math.min(elapsedMs, MAX_CLOCK_EXTRAPOLATION_MS);
+        }
+        float fraction = Math.max(0.0F, Math.min(1.0F, playedMs / durationMs));
+        float oldX = getProgressX();
+        clockFraction = fraction;
+        invalidateProgress(oldX, getProgressX(), true);
+        setProgress((int) (fraction * maxProgress), false);
+    }
+
+    private void redrawData(float factor) {
+        if (getWidth() <= 0 || getHeight() <= 0 || scaledData == null) {
+            return;
+        }
+        updateRasterFrame(scaledData, factor);
+        if (liveMode) {
+            liveWaveform.invalidate();
+            invalidate();
+            return;
+        }
+        waveRasterizer.request(rasterFrame);
+    }
+
+    private void updateRasterFrame(@NonNull byte[] data, float factor) {
+        rasterFrame.setData(data, factor);
+        rasterFrame.setLanes(liveMode || scaledLanes.length == 0 || scaledLanes[0].length != data.length
+                ? NO_LANES : scaledLanes, channelLayout);
+        rasterFrame.setRms(liveMode || scaledRms.length != data.length ? NO_RMS : scaledRms, scaledLaneRms);
+        rasterFrame.setFirstChunk(visibleFirstChunk);
+        rasterFrame.setSize(Math.max(getWidth(), data.length * getChunkStepWidth()), getHeight(),
+                getWaveBitmapConfig());
+        rasterFrame.setStyle(wavePaint.getColor(), batchedRendering);
+        rasterFrame.setGeometry(chunkWidth, chunkSpacing, chunkRadius, chunkMinHeight, chunkMaxHeight);
+    }
+
+    // Only the chunks that arrived since the last frame are rasterized
+    private void drawLiveData(@NonNull Canvas canvas) {
+        if (getWidth() <= 0 || getHeight() <= 0 || getChunkStepWidth() <= 0) {
+            return;
+        }
+        liveWaveform.setCapacity(getChunksCount());
+        updateRasterFrame(scaledData, VALUE_ANIMATOR_TO);
+        if (metricsListener != TideMetricsListener.NO_OP) {
+            long startNanos = System.nanoTime();
+            int chunkCount = liveWaveform.render(rasterFrame);
+            if (chunkCount > 0) {
+                redrawMetrics.live = true;
+                redrawMetrics.rasterNanos = System.nanoTime() - startNanos;
+                redrawMetrics.latencyNanos = 0L;
+                redrawMetrics.chunkCount = chunkCount;
+                redrawMetrics.redrawCount = ++liveRedrawCount;
+                redrawMetrics.requestCount = liveRedrawCount;
+                redrawMetrics.coalescedCount = 0L;
+                metricsListener.onRedraw(this, redrawMetrics);
+            }
+        } else {
+            liveWaveform.render(rasterFrame);
+        }
+        canvas.save();
+        canvas.clipRect(0.0F, 0.0F, (float) getWidth(), (float) getHeight());
+        liveWaveform.draw(canvas, wavePaint);
+        canvas.restore();
+        canvas.save();
+        canvas.clipRect(0.0F, 0.0F, (float) getWidth() * getProgressFactor(), (float) getHeight());
+        liveWaveform.draw(canvas, waveFilledPaint);
+        canvas.restore();
+    }
+
+    private void resampleData() {
+        if (editDepth > 0) {
+            editResample = true;
+            return;
+        }
+        if (peakPyramid != null) {
+            setScaledData(sampleVisiblePeaks(peakPyramid));
+        } else {
+            redrawData();
+        }
     }
 
     private void redrawData() {
-        if (waveBitmap != null) {
-            Canvas canvas = new Canvas(waveBitmap);
-            redrawData(canvas, VALUE_ANIMATOR_TO);
+        if (editDepth > 0) {
+            editRedraw = true;
+            return;
+        }
+        redrawData(VALUE_ANIMATOR_TO);
+    }
+
+    private void beginEdit() {
+        ++editDepth;
+    }
+
+    private void endEdit() {
+        if (--editDepth > 0) {
+            return;
+        }
+        boolean resample = editResample;
+        boolean redraw = editRedraw;
+        editResample = false;
+        editRedraw = false;
+        if (resample) {
+            resampleData();
+        } else if (redraw) {
+            redrawData();
         }
     }
 
@@ -559,6 +1514,11 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         return paint;
     }
 
+    @NonNull
+    private Paint getFilledPaint(@ColorInt int color) {
+        return maskRendering ? getSmoothPaint(color) : getFilterPaint(color);
+    }
+
     @NonNull
     private Paint getFilterPaint(@ColorInt int color) {
         Paint paint = new Paint();
@@ -567,23 +1527,10 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         return paint;
     }
 
-    private void safeRecycle(@Nullable Bitmap bitmap) {
-        if (bitmap != null && !bitmap.isRecycled()) {
-            bitmap.recycle();
-        }
-    }
-
-    private void safeEraseColor(@Nullable Bitmap bitmap) {
-        if (bitmap != null) {
-            bitmap.eraseColor(0);
-        }
-    }
-
-    private boolean isBitmapFits(@Nullable Bitmap bitmap, int width, int height) {
-        if (bitmap != null) {
-            return bitmap.getHeight() == height && bitmap.getWidth() == width;
-        }
-        return false;
+    // An ALPHA_8 mask is enough because onDraw tints the bars with the paint color
+    @NonNull
+    private Bitmap.Config getWaveBitmapConfig() {
+        return maskRendering ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888;
     }
 
     private byte getAbsByte(byte b) {
@@ -610,49 +1557,190 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         return bytes;
     }
 
-    private byte[] getSample(byte[] bytes, int chunkCount) {
-        if (chunkCount <= 1) {
-            return new byte[0];
-        }
-        byte[] sample = new byte[chunkCount];
-        if (chunkCount >= bytes.length) {
-            return paste(sample, bytes);
+    private int dpToPx(@NonNull Context context, @Dimension int value) {
+        return (int) (value * context.getResources().getDisplayMetrics().density);
+    }
+
+    private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            float focus = getWidth() > 0 ? detector.getFocusX() / getWidth() : 0.5F;
+            if (viewport.setZoom(viewport.getZoom() * detector.getScaleFactor(), focus)) {
+                resampleData();
+                invalidate();
+            }
+            return true;
         }
-        int step = Math.abs((bytes.length - 1) / (chunkCount - 1));
-        for (int i = 0; i < chunkCount; ++i) {
-            if (i == 0) {
-                sample[i] = getAbsByte(bytes, i, step / 2);
-            } else if (i == chunkCount - 1) {
-                sample[i] = getAbsByte(bytes, (bytes.length - 1) - (step / 2), bytes.length - 1);
-            } else {
-                sample[i] = getAbsByte(bytes, (i * step) - (step / 2), (i * step) + (step / 2));
+    }
+
+    private class FlingListener extends GestureDetector.SimpleOnGestureListener {
+        @Override
+        public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+            if (!isPanning || scroller == null) {
+                return false;
             }
+            int maxScroll = (int) Math.max(0.0, getContentWidth() - getWidth());
+            scroller.fling((int) getScrollPx(), 0, (int) -velocityX, 0, 0, maxScroll, 0, 0);
+            postInvalidateOnAnimation();
+            return true;
         }
-        return sample;
     }
 
-    private byte getAbsByte(byte[] bytes, int from, int to) {
-        int step = (to - from) / 5;
-        float absByte = 0.0F;
-        int count = 0;
-        for (int i = from; i < to; i += step) {
-            absByte += getAbsByte(bytes[i]);
-            ++count;
+    /**
+     * Collects appearance changes and applies them to the view with a single redraw. Obtained from
+     * {@link #edit()}; values are clamped exactly like the matching {@code TideView} setters.
+     */
+    public final class Editor {
+        private static final int CHUNK_COLOR = 1;
+        private static final int CHUNK_WIDTH = 1 << 1;
+        private static final int CHUNK_SPACING = 1 << 2;
+        private static final int CHUNK_RADIUS = 1 << 3;
+        private static final int CHUNK_MIN_HEIGHT = 1 << 4;
+        private static final int CHUNK_MAX_HEIGHT = 1 << 5;
+        private static final int MASK_RENDERING = 1 << 6;
+        private static final int BATCHED_RENDERING = 1 << 7;
+        private static final int RMS_RENDERING = 1 << 8;
+        private static final int CHANNEL_LAYOUT = 1 << 9;
+        private static final int SAMPLE_REDUCER = 1 << 10;
+
+        private int changes;
+        private int chunkColor;
+        private int chunkWidth;
+        private int chunkSpacing;
+        private int chunkRadius;
+        private int chunkMinHeight;
+        private int chunkMaxHeight;
+        private boolean maskRendering;
+        private boolean batchedRendering;
+        private boolean rmsRendering;
+        private ChannelLayout channelLayout;
+        private SampleReducer sampleReducer;
+
+        private Editor() { }
+
+        @NonNull
+        public Editor setChunkColor(@ColorInt int color) {
+            chunkColor = color;
+            changes |= CHUNK_COLOR;
+            return this;
         }
-        absByte /= count;
-        if (absByte <= 5.0F) {
-            absByte = getRandomByte();
+
+        @NonNull
+        public Editor setChunkWidth(@Px int width) {
+            chunkWidth = width;
+            changes |= CHUNK_WIDTH;
+            return this;
         }
-        return (byte) absByte;
-    }
 
-    // Dirty hack to fill invalid byte with random byte
-    private float getRandomByte() {
-        return random.nextInt(Byte.MAX_VALUE - 60) + 30;
-    }
+        @NonNull
+        public Editor setChunkSpacing(@Px int space) {
+            chunkSpacing = space;
+            changes |= CHUNK_SPACING;
+            return this;
+        }
 
-    private int dpToPx(@NonNull Context context, @Dimension int value) {
-        return (int) (value * context.getResources().getDisplayMetrics().density);
+        @NonNull
+        public Editor setChunkRadius(@Px int value) {
+            chunkRadius = value;
+            changes |= CHUNK_RADIUS;
+            return this;
+        }
+
+        @NonNull
+        public Editor setChunkMinHeight(@Px int value) {
+            chunkMinHeight = value;
+            changes |= CHUNK_MIN_HEIGHT;
+            return this;
+        }
+
+        @NonNull
+        public Editor setChunkMaxHeight(@Px int height) {
+            chunkMaxHeight = height;
+            changes |= CHUNK_MAX_HEIGHT;
+            return this;
+        }
+
+        @NonNull
+        public Editor setMaskRendering(boolean mask) {
+            maskRendering = mask;
+            changes |= MASK_RENDERING;
+            return this;
+        }
+
+        @NonNull
+        public Editor setBatchedRendering(boolean batched) {
+            batchedRendering = batched;
+            changes |= BATCHED_RENDERING;
+            return this;
+        }
+
+        @NonNull
+        public Editor setRmsRendering(boolean rms) {
+            rmsRendering = rms;
+            changes |= RMS_RENDERING;
+            return this;
+        }
+
+        @NonNull
+        public Editor setChannelLayout(@NonNull ChannelLayout layout) {
+            channelLayout = layout;
+            changes |= CHANNEL_LAYOUT;
+            return this;
+        }
+
+        @NonNull
+        public Editor setSampleReducer(@NonNull SampleReducer reducer) {
+            sampleReducer = reducer;
+            changes |= SAMPLE_REDUCER;
+            return this;
+        }
+
+        /**
+         * Applies every change made through this editor. Must be called on the main thread.
+         */
+        @MainThread
+        public void apply() {
+            int changes = this.changes;
+            this.changes = 0;
+            beginEdit();
+            try {
+                if ((changes & CHUNK_COLOR) != 0) {
+                    TideView.this.setChunkColor(chunkColor);
+                }
+                if ((changes & CHUNK_WIDTH) != 0) {
+                    TideView.this.setChunkWidth(chunkWidth);
+                }
+                if ((changes & CHUNK_SPACING) != 0) {
+                    TideView.this.setChunkSpacing(chunkSpacing);
+                }
+                if ((changes & CHUNK_RADIUS) != 0) {
+                    TideView.this.setChunkRadius(chunkRadius);
+                }
+                if ((changes & CHUNK_MIN_HEIGHT) != 0) {
+                    TideView.this.setChunkMinHeight(chunkMinHeight);
+                }
+                if ((changes & CHUNK_MAX_HEIGHT) != 0) {
+                    TideView.this.setChunkMaxHeight(chunkMaxHeight);
+                }
+                if ((changes & MASK_RENDERING) != 0) {
+                    TideView.this.setMaskRendering(maskRendering);
+                }
+                if ((changes & BATCHED_RENDERING) != 0) {
+                    TideView.this.setBatchedRendering(batchedRendering);
+                }
+                if ((changes & RMS_RENDERING) != 0) {
+                    TideView.this.setRmsRendering(rmsRendering);
+                }
+                if ((changes & CHANNEL_LAYOUT) != 0) {
+                    TideView.this.setChannelLayout(channelLayout);
+                }
+                if ((changes & SAMPLE_REDUCER) != 0) {
+                    TideView.this.setSampleReducer(sampleReducer);
+                }
+            } finally {
+                endEdit();
+            }
+        }
     }
 
     private static class SavedState extends BaseSavedState implements Parcelable {
@@ -725,6 +1813,33 @@ public class TideView extends View implements ValueAnimator.AnimatorUpdateListen
         }
     }
 
+    /**
+     * When a touch drag reports its position to {@link OnTideViewChangeListener}. Every policy
+     * reports the final position before {@link OnTideViewChangeListener#onStopTrackingTouch}.
+     */
+    public enum SeekPolicy {
+        /** Reports every motion event that moves the progress. */
+        IMMEDIATE,
+        /** Reports at most once per display frame, with the latest position. */
+        PER_FRAME,
+        /** Reports once the finger has rested for 150 ms, and on lift. */
+        ON_IDLE,
+        /** Reports only when the finger lifts or the gesture is cancelled. */
+        ON_RELEASE
+    }
+
+    /**
+     * How a waveform with per-channel lanes is drawn.
+     */
+    public enum ChannelLayout {
+        /** One waveform of all channels mixed. */
+        MIXED,
+        /** One lane per channel, stacked top to bottom in channel order. */
+        STACKED,
+        /** The first channel above the center line and the second mirrored below it. */
+        MIRRORED
+    }
+
     public interface OnTideViewChangeListener {
         void onProgressChanged(@NonNull TideView tideView, int progress, boolean fromUser);
         default void onStartTrackingTouch(@NonNull TideView tideView) { }
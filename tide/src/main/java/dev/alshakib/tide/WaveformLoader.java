@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.IOException;
+
+import dev.alshakib.tide.TideMetricsListener.LoadMetrics;
+import dev.alshakib.tide.cache.WaveformDiskCache;
+import dev.alshakib.tide.cache.WaveformKey;
+import dev.alshakib.tide.cache.WaveformMemoryCache;
+import dev.alshakib.tide.decoder.AudioDecoder;
+import dev.alshakib.tide.decoder.AudioDecoderFactory;
+import dev.alshakib.tide.sampler.ParallelSampler;
+import dev.alshakib.tide.sampler.PeakPyramid;
+import dev.alshakib.tide.sampler.PipelinedSampler;
+import dev.alshakib.tide.sampler.StreamingSampler;
+
+final class WaveformLoader {
+    private static final String THREAD_NAME = "tide_loader_thread";
+    private static final String DISK_CACHE_DIRECTORY = "tide";
+
+    // One buffer is decoded into while the pool samples the other
+    private static final ThreadLocal<short[][]> PCM_BUFFERS = new ThreadLocal<short[][]>() {
+        @Override
+        protected short[][] initialValue() {
+            return new short[2][StreamingSampler.DEFAULT_BUFFER_SIZE];
+        }
+    };
+
+    private static Handler defaultHandler;
+    private static WaveformDiskCache defaultDiskCache;
+    private static WaveformMemoryCache defaultMemoryCache;
+
+    private WaveformLoader() { }
+
+    @NonNull
+    static synchronized Handler getDefaultHandler() {
+        if (defaultHandler == null) {
+            HandlerThread handlerThread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_BACKGROUND);
+            handlerThread.start();
+            defaultHandler = new Handler(handlerThread.getLooper());
+        }
+        return defaultHandler;
+    }
+
+    @NonNull
+    static synchronized WaveformDiskCache getDefaultDiskCache(@NonNull Context context) {
+        if (defaultDiskCache == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), DISK_CACHE_DIRECTORY);
+            defaultDiskCache = new WaveformDiskCache(directory);
+        }
+        return defaultDiskCache;
+    }
+
+    @NonNull
+    static synchronized WaveformMemoryCache getDefaultMemoryCache(@Nullable Context context) {
+        if (defaultMemoryCache == null) {
+            defaultMemoryCache = context != null ? new WaveformMemoryCache(context) : new WaveformMemoryCache();
+        }
+        return defaultMemoryCache;
+    }
+
+    @NonNull
+    @WorkerThread
+    static PeakPyramid load(@NonNull Context context, @NonNull Uri uri, @NonNull AudioDecoderFactory factory,
+                            @Nullable WaveformMemoryCache memoryCache, @Nullable WaveformDiskCache diskCache,
+                            @Nullable LoadMetrics metrics, @NonNull TideLoad.Token token) throws IOException {
+        long startNanos = metrics != null ? System.nanoTime() : 0L;
+        WaveformKey key = memoryCache != null || diskCache != null ? WaveformKey.of(context, uri) : null;
+        if (key != null && memoryCache != null) {
+            PeakPyramid cached = memoryCache.get(key);
+            if (cached != null) {
+                onCacheLookup(metrics, LoadMetrics.CacheResult.MEMORY_HIT, startNanos);
+                return cached;
+            }
+        }
+        if (key != null && diskCache != null) {
+            PeakPyramid cached = diskCache.get(key);
+            if (cached != null) {
+                if (memoryCache != null) {
+                    memoryCache.put(key, cached);
+                }
+                onCacheLookup(metrics, LoadMetrics.CacheResult.DISK_HIT, startNanos);
+                return cached;
+            }
+        }
+        onCacheLookup(metrics, key != null ? LoadMetrics.CacheResult.MISS : LoadMetrics.CacheResult.UNCACHED,
+                startNanos);
+        token.throwIfStopped();
+        short[][] buffers = PCM_BUFFERS.get();
+        PipelinedSampler sampler = new PipelinedSampler(
+                new StreamingSampler(StreamingSampler.DEFAULT_BUCKET_CAPACITY, true),
+                ParallelSampler.getDefaultPool(), buffers[0], buffers[1]);
+        try (AudioDecoder decoder = factory.create(context, uri)) {
+            decode(sampler, decoder, metrics, token);
+        }
+        if (metrics != null) {
+            metrics.sourceSize = key != null ? key.getSize() : -1L;
+        }
+        PeakPyramid pyramid = sampler.build();
+        long writeNanos = metrics != null ? System.nanoTime() : 0L;
+        if (key != null && memoryCache != null) {
+            memoryCache.put(key, pyramid);
+        }
+        if (key != null && diskCache != null) {
+            diskCache.put(key, pyramid);
+        }
+        if (metrics != null) {
+            metrics.cacheWriteNanos = System.nanoTime() - writeNanos;
+        }
+        return pyramid;
+    }
+
+    @NonNull
+    @WorkerThread
+    static PeakPyramid sample(@NonNull byte[] raw, @Nullable LoadMetrics metrics) {
+        long startNanos = metrics != null ? System.nanoTime() : 0L;
+        PeakPyramid pyramid = ParallelSampler.sample(raw, 0, raw.length);
+        if (metrics != null) {
+            metrics.sampleNanos = System.nanoTime() - startNanos;
+            metrics.sourceSize = raw.length;
+            metrics.sampleCount = raw.length;
+        }
+        return pyramid;
+    }
+
+    private static void onCacheLookup(@Nullable LoadMetrics metrics, @NonNull LoadMetrics.CacheResult result,
+                                      long startNanos) {
+        if (metrics != null) {
+            metrics.cacheResult = result;
+            metrics.cacheNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    // Same loop as PipelinedSampler.add(AudioDecoder), but it stops as soon as the load goes
+    // stale and, with metrics on, times decoding and sampling separately. Sampling overlaps
+    // decoding, so the two can add up to more than the wall time.
+    private static void decode(@NonNull PipelinedSampler sampler, @NonNull AudioDecoder decoder,
+                               @Nullable LoadMetrics metrics, @NonNull TideLoad.Token token) throws IOException {
+        try {
+            int read;
+            short[] buffer = sampler.getBuffer();
+            long time = metrics != null ? System.nanoTime() : 0L;
+            while ((read = decoder.read(buffer, 0, buffer.length)) != -1) {
+                token.throwIfStopped();
+                if (metrics != null) {
+                    metrics.decodeNanos += System.nanoTime() - time;
+                    metrics.sampleCount += read;
+                }
+                sampler.submit(read, decoder.getChannelCount());
+                buffer = sampler.getBuffer();
+                if (metrics != null) {
+                    time = System.nanoTime();
+                }
+            }
+        } finally {
+            // The buffers are reused by the next load on this thread
+            sampler.join();
+        }
+        if (metrics != null) {
+            metrics.sampleNanos = sampler.getSampleNanos();
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.View;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.core.graphics.ColorUtils;
+
+import dev.alshakib.tide.cache.WaveformBitmapPool;
+
+/**
+ * Rasterizes waveform frames on a shared render thread. Frames are drawn into a back buffer
+ * and handed over to the UI thread only once complete, so {@link View#onDraw} just blits the
+ * front buffer. Requests that arrive while a frame is being drawn are coalesced into one.
+ * <p>
+ * A buffer that leaves the screen is kept out of rotation until the next draw, since the
+ * display list recorded with it may still be rendering. At most three buffers are held: the
+ * one on screen, the one shown before it or a spare, and one finished or being drawn.
+ */
+final class WaveformRasterizer implements Runnable {
+    private static final String THREAD_NAME = "tide_render_thread";
+    // Opacity of the peak envelope relative to the RMS body drawn over it
+    private static final float PEAK_ENVELOPE_ALPHA = 0.45F;
+
+    private static Handler renderHandler;
+
+    private final View view;
+    private final Handler handler;
+    private final WaveformRenderer renderer;
+    private final Canvas canvas;
+    private final Frame pendingFrame;
+    private final Frame activeFrame;
+    private final Object lock;
+
+    private volatile WaveformBitmapPool bitmapPool;
+    private volatile boolean metricsEnabled;
+
+    // Guarded by lock
+    private Bitmap displayedBuffer;
+    private Bitmap retiredBuffer;
+    private Bitmap readyBuffer;
+    private Bitmap spareBuffer;
+    private long displayedFirstChunk;
+    private long readyFirstChunk;
+    private boolean scheduled;
+    private boolean released;
+
+    // Guarded by lock, only maintained while metrics are enabled
+    private long pendingRequestNanos;
+    private long readyRequestNanos;
+    private long readyRasterNanos;
+    private int readyChunkCount;
+    private boolean frameDisplayed;
+    private long displayedRequestNanos;
+    private long displayedRasterNanos;
+    private int displayedChunkCount;
+    private long redrawCount;
+    private long requestCount;
+    private long coalescedCount;
+
+    WaveformRasterizer(@NonNull View view) {
+        this.view = view;
+        this.handler = getRenderHandler();
+        this.renderer = new WaveformRenderer();
+        this.canvas = new Canvas();
+        this.pendingFrame = new Frame();
+        this.activeFrame = new Frame();
+        this.lock = new Object();
+    }
+
+    @NonNull
+    private static synchronized Handler getRenderHandler() {
+        if (renderHandler == null) {
+            HandlerThread handlerThread = new HandlerThread(THREAD_NAME, Process.THREAD_PRIORITY_DISPLAY);
+            handlerThread.start();
+            renderHandler = new Handler(handlerThread.getLooper());
+        }
+        return renderHandler;
+    }
+
+    void setBitmapPool(@Nullable WaveformBitmapPool pool) {
+        this.bitmapPool = pool;
+    }
+
+    void setMetricsEnabled(boolean enabled) {
+        this.metricsEnabled = enabled;
+    }
+
+    @MainThread
+    void request(@NonNull Frame frame) {
+        boolean metrics = metricsEnabled;
+        synchronized (lock) {
+            released = false;
+            pendingFrame.set(frame);
+            if (metrics) {
+                // A coalesced frame is timed from the latest request it absorbed
+                pendingRequestNanos = System.nanoTime();
+                ++requestCount;
+            }
+            if (scheduled) {
+                if (metrics) {
+                    ++coalescedCount;
+                }
+                return;
+            }
+            scheduled = true;
+        }
+        handler.post(this);
+    }
+
+    /**
+     * Fills {@code out} with the frame promoted by the latest {@link #acquireFrontBuffer()} and
+     * returns {@code true}, or returns {@code false} if that frame was already reported.
+     */
+    @MainThread
+    boolean pollFrameMetrics(@NonNull TideMetricsListener.RedrawMetrics out) {
+        synchronized (lock) {
+            if (frameDisplayed) {
+                return false;
+            }
+            frameDisplayed = true;
+            out.live = false;
+            out.rasterNanos = displayedRasterNanos;
+            out.latencyNanos = displayedRequestNanos > 0L ? System.nanoTime() - displayedRequestNanos : 0L;
+            out.chunkCount = displayedChunkCount;
+            out.redrawCount = redrawCount;
+            out.requestCount = requestCount;
+            out.coalescedCount = coalescedCount;
+            return true;
+        }
+    }
+
+    /**
+     * Returns when the frame currently in the front buffer was requested, as
+     * {@link System#nanoTime()}, or 0 if metrics were off at the time.
+     */
+    @MainThread
+    long getFrontRequestNanos() {
+        synchronized (lock) {
+            return displayedRequestNanos;
+        }
+    }
+
+    /**
+     * Promotes the most recently finished frame, if any, to the front buffer and returns it.
+     */
+    @Nullable
+    @MainThread
+    Bitmap acquireFrontBuffer() {
+        synchronized (lock) {
+            // A draw has happened since this buffer left the screen, so nothing draws it anymore
+            if (retiredBuffer != null) {
+                if (spareBuffer == null) {
+                    spareBuffer = retiredBuffer;
+                } else {
+                    recycle(retiredBuffer);
+                }
+                retiredBuffer = null;
+            }
+            if (readyBuffer != null) {
+                retiredBuffer = displayedBuffer;
+                displayedBuffer = readyBuffer;
+                displayedFirstChunk = readyFirstChunk;
+                displayedRequestNanos = readyRequestNanos;
+                displayedRasterNanos = readyRasterNanos;
+                displayedChunkCount = readyChunkCount;
+                frameDisplayed = false;
+                readyBuffer = null;
+            }
+            return displayedBuffer;
+        }
+    }
+
+    /**
+     * Returns the {@link Frame#firstChunk} the front buffer was drawn for.
+     */
+    @MainThread
+    long getFrontFirstChunk() {
+        synchronized (lock) {
+            return displayedFirstChunk;
+        }
+    }
+
+    /**
+     * Drops all buffers. The ones that were on screen go back to the pool only after the
+     * following frame, as the view's last display list may still draw them.
+     */
+    @MainThread
+    void release() {
+        synchronized (lock) {
+            released = true;
+            DeferredBitmapRecycler.recycleAfterNextFrame(displayedBuffer, bitmapPool);
+            DeferredBitmapRecycler.recycleAfterNextFrame(retiredBuffer, bitmapPool);
+            recycle(readyBuffer);
+            recycle(spareBuffer);
+            displayedBuffer = null;
+            retiredBuffer = null;
+            readyBuffer = null;
+            spareBuffer = null;
+        }
+    }
+
+    @WorkerThread
+    @Override
+    public void run() {
+        Bitmap target;
+        long requestNanos;
+        synchronized (lock) {
+            scheduled = false;
+            if (released) {
+                return;
+            }
+            activeFrame.set(pendingFrame);
+            requestNanos = pendingRequestNanos;
+            pendingRequestNanos = 0L;
+            target = spareBuffer;
+            spareBuffer = null;
+            if (target == null) {
+                target = readyBuffer;
+                readyBuffer = null;
+            }
+        }
+        Frame frame = activeFrame;
+        if (frame.width <= 0 || frame.height <= 0) {
+            recycle(target);
+            return;
+        }
+        if (!fits(target, frame)) {
+            recycle(target);
+            target = borrow(frame);
+        } else {
+            target.eraseColor(0);
+        }
+        long rasterStartNanos = metricsEnabled ? System.nanoTime() : 0L;
+        canvas.setBitmap(target);
+        renderer.setBatched(frame.batched);
+        if (frame.lanes.length > 1) {
+            drawLanes(frame);
+        } else {
+            renderer.setGeometry(frame.chunkWidth, frame.chunkSpacing, frame.chunkRadius,
+                    frame.chunkMinHeight, frame.chunkMaxHeight);
+            drawLayers(frame, frame.data, frame.rms, frame.height / 2);
+        }
+        canvas.setBitmap(null);
+        long rasterNanos = rasterStartNanos > 0L ? System.nanoTime() - rasterStartNanos : 0L;
+        synchronized (lock) {
+            if (released) {
+                recycle(target);
+                return;
+            }
+            // The superseded frame was never shown, so it can be reused at once
+            if (readyBuffer != null) {
+                if (spareBuffer == null && retiredBuffer == null) {
+                    spareBuffer = readyBuffer;
+                } else {
+                    recycle(readyBuffer);
+                }
+            }
+            readyBuffer = target;
+            readyFirstChunk = frame.firstChunk;
+            readyRequestNanos = requestNanos;
+            readyRasterNanos = rasterNanos;
+            readyChunkCount = frame.data.length;
+            ++redrawCount;
+        }
+        view.postInvalidate();
+    }
+
+    @WorkerThread
+    private void drawLanes(@NonNull Frame frame) {
+        byte[][] lanes = frame.lanes;
+        if (frame.laneLayout == TideView.ChannelLayout.MIRRORED) {
+            // Bars are symmetric, so clipping each lane to its half mirrors them around the center
+            int centerY = frame.height / 2;
+            renderer.setGeometry(frame.chunkWidth, frame.chunkSpacing, frame.chunkRadius,
+                    frame.chunkMinHeight, frame.chunkMaxHeight);
+            canvas.save();
+            canvas.clipRect(0, 0, frame.width, centerY);
+            drawLayers(frame, lanes[0], getLaneRms(frame, 0), centerY);
+            canvas.restore();
+            canvas.save();
+            canvas.clipRect(0, centerY, frame.width, frame.height);
+            drawLayers(frame, lanes[1], getLaneRms(frame, 1), centerY);
+            canvas.restore();
+            return;
+        }
+        int laneHeight = frame.height / lanes.length;
+        renderer.setGeometry(frame.chunkWidth, frame.chunkSpacing, frame.chunkRadius,
+                frame.chunkMinHeight, frame.chunkMaxHeight / lanes.length);
+        for (int i = 0; i < lanes.length; ++i) {
+            drawLayers(frame, lanes[i], getLaneRms(frame, i), laneHeight * i + laneHeight / 2);
+        }
+    }
+
+    /**
+     * Draws the peaks alone, or with RMS values of the same length as a translucent peak
+     * envelope with the RMS body on top.
+     */
+    @WorkerThread
+    private void drawLayers(@NonNull Frame frame, @NonNull byte[] peaks, @NonNull byte[] rms, int centerY) {
+        if (rms.length == 0 || rms.length != peaks.length) {
+            renderer.setColor(frame.color);
+            renderer.draw(canvas, peaks, centerY, frame.factor);
+            return;
+        }
+        renderer.setColor(ColorUtils.setAlphaComponent(frame.color,
+                (int) (Color.alpha(frame.color) * PEAK_ENVELOPE_ALPHA)));
+        renderer.draw(canvas, peaks, centerY, frame.factor);
+        renderer.setColor(frame.color);
+        renderer.draw(canvas, rms, centerY, frame.factor);
+    }
+
+    @NonNull
+    private static byte[] getLaneRms(@NonNull Frame frame, int lane) {
+        return lane < frame.laneRms.length ? frame.laneRms[lane] : Frame.NO_DATA;
+    }
+
+    @NonNull
+    private Bitmap borrow(@NonNull Frame frame) {
+        WaveformBitmapPool pool = bitmapPool;
+        return pool != null
+                ? pool.get(frame.width, frame.height, frame.config)
+                : Bitmap.createBitmap(frame.width, frame.height, frame.config);
+    }
+
+    private void recycle(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        WaveformBitmapPool pool = bitmapPool;
+        if (pool != null) {
+            pool.put(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    private static boolean fits(@Nullable Bitmap bitmap, @NonNull Frame frame) {
+        return bitmap != null && !bitmap.isRecycled()
+                && bitmap.getWidth() == frame.width && bitmap.getHeight() == frame.height
+                && bitmap.getConfig() == frame.config;
+    }
+
+    static final class Frame {
+        static final byte[] NO_DATA = new byte[0];
+
+        byte[] data = NO_DATA;
+        byte[] rms = NO_DATA;
+        byte[][] lanes = new byte[0][];
+        byte[][] laneRms = new byte[0][];
+        TideView.ChannelLayout laneLayout = TideView.ChannelLayout.MIXED;
+        int width;
+        int height;
+        Bitmap.Config config = Bitmap.Config.ALPHA_8;
+        int color;
+        int chunkWidth;
+        int chunkSpacing;
+        int chunkRadius;
+        int chunkMinHeight;
+        int chunkMaxHeight;
+        boolean batched;
+        float factor;
+        long firstChunk;
+
+        void setData(@NonNull byte[] data, float factor) {
+            this.data = data;
+            this.factor = factor;
+        }
+
+        /**
+         * Sets the RMS values drawn as a body inside the peaks, for {@link #data} and for each
+         * lane. Empty arrays turn the RMS layer off.
+         */
+        void setRms(@NonNull byte[] rms, @NonNull byte[][] laneRms) {
+            this.rms = rms;
+            this.laneRms = laneRms;
+        }
+
+        /**
+         * Sets per-channel peaks drawn instead of {@link #data} when there are at least two. Each
+         * lane has the same length as {@link #data}.
+         */
+        void setLanes(@NonNull byte[][] lanes, @NonNull TideView.ChannelLayout layout) {
+            this.lanes = lanes;
+            this.laneLayout = layout;
+        }
+
+        /**
+         * Records which chunk of the whole waveform {@code data[0]} is, so the UI thread knows
+         * where to place the finished buffer while the viewport keeps scrolling.
+         */
+        void setFirstChunk(long firstChunk) {
+            this.firstChunk = firstChunk;
+        }
+
+        void setSize(int width, int height, @NonNull Bitmap.Config config) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+        }
+
+        void setStyle(@ColorInt int color, boolean batched) {
+            this.color = color;
+            this.batched = batched;
+        }
+
+        void setGeometry(int chunkWidth, int chunkSpacing, int chunkRadius, int chunkMinHeight, int chunkMaxHeight) {
+            this.chunkWidth = chunkWidth;
+            this.chunkSpacing = chunkSpacing;
+            this.chunkRadius = chunkRadius;
+            this.chunkMinHeight = chunkMinHeight;
+            this.chunkMaxHeight = chunkMaxHeight;
+        }
+
+        void set(@NonNull Frame frame) {
+            data = frame.data;
+            rms = frame.rms;
+            lanes = frame.lanes;
+            laneRms = frame.laneRms;
+            laneLayout = frame.laneLayout;
+            width = frame.width;
+            height = frame.height;
+            config = frame.config;
+            color = frame.color;
+            chunkWidth = frame.chunkWidth;
+            chunkSpacing = frame.chunkSpacing;
+            chunkRadius = frame.chunkRadius;
+            chunkMinHeight = frame.chunkMinHeight;
+            chunkMaxHeight = frame.chunkMaxHeight;
+            batched = frame.batched;
+            factor = frame.factor;
+            firstChunk = frame.firstChunk;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+
+import dev.alshakib.tide.geometry.ChunkGeometry;
+
+/**
+ * Rasterizes chunk bars into a canvas. Bars are batched into a single draw call whenever the
+ * geometry allows it: square bars and fully rounded bars become one {@code drawLines} call with
+ * butt or round caps, any other radius becomes one {@code drawPath} call. The original
+ * one-{@code drawRoundRect}-per-chunk path is kept for when batching is turned off.
+ */
+final class WaveformRenderer {
+    private final Paint fillPaint;
+    private final Paint strokePaint;
+    private final RectF chunkRect;
+    private final Path chunkPath;
+    private final ChunkGeometry geometry;
+
+    private boolean batched;
+
+    WaveformRenderer() {
+        this.fillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        this.strokePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        this.strokePaint.setStyle(Paint.Style.STROKE);
+        this.chunkRect = new RectF();
+        this.chunkPath = new Path();
+        this.geometry = new ChunkGeometry();
+        this.batched = true;
+    }
+
+    void setColor(@ColorInt int color) {
+        fillPaint.setColor(color);
+        strokePaint.setColor(color);
+    }
+
+    void setGeometry(int chunkWidth, int chunkSpacing, int chunkRadius, int chunkMinHeight, int chunkMaxHeight) {
+        geometry.set(chunkWidth, chunkSpacing, chunkRadius, chunkMinHeight, chunkMaxHeight);
+    }
+
+    boolean isBatched() {
+        return batched;
+    }
+
+    void setBatched(boolean batched) {
+        this.batched = batched;
+    }
+
+    void draw(@NonNull Canvas canvas, @NonNull byte[] data, int centerY, float factor) {
+        draw(canvas, data, 0, data.length, centerY, factor);
+    }
+
+    /**
+     * Draws only the chunks in {@code [from, to)}, each one at its own column.
+     */
+    void draw(@NonNull Canvas canvas, @NonNull byte[] data, int from, int to, int centerY, float factor) {
+        if (!batched) {
+            drawRoundRects(canvas, data, from, to, centerY, factor);
+        } else if (geometry.getChunkRadius() == 0) {
+            drawLines(canvas, data, from, to, centerY, factor, Paint.Cap.BUTT);
+        } else if (geometry.isFullyRounded()) {
+            drawLines(canvas, data, from, to, centerY, factor, Paint.Cap.ROUND);
+        } else {
+            drawPath(canvas, data, from, to, centerY, factor);
+        }
+    }
+
+    private void drawRoundRects(@NonNull Canvas canvas, @NonNull byte[] data, int from, int to, int centerY,
+                                float factor) {
+        float[] chunkLeft = geometry.getChunkLeft(data.length);
+        int chunkWidth = geometry.getChunkWidth();
+        int chunkRadius = geometry.getChunkRadius();
+        for (int i = from; i < to; ++i) {
+            int halfHeight = geometry.getHalfHeight(data[i], factor);
+            chunkRect.set(chunkLeft[i], centerY - halfHeight, chunkLeft[i] + chunkWidth, centerY + halfHeight);
+            canvas.drawRoundRect(chunkRect, chunkRadius, chunkRadius, fillPaint);
+        }
+    }
+
+    private void drawPath(@NonNull Canvas canvas, @NonNull byte[] data, int from, int to, int centerY,
+                          float factor) {
+        float[] chunkLeft = geometry.getChunkLeft(data.length);
+        int chunkWidth = geometry.getChunkWidth();
+        int chunkRadius = geometry.getChunkRadius();
+        chunkPath.rewind();
+        for (int i = from; i < to; ++i) {
+            int halfHeight = geometry.getHalfHeight(data[i], factor);
+            chunkPath.addRoundRect(chunkLeft[i], centerY - halfHeight, chunkLeft[i] + chunkWidth,
+                    centerY + halfHeight, chunkRadius, chunkRadius, Path.Direction.CW);
+        }
+        canvas.drawPath(chunkPath, fillPaint);
+    }
+
+    private void drawLines(@NonNull Canvas canvas, @NonNull byte[] data, int from, int to, int centerY,
+                           float factor, @NonNull Paint.Cap cap) {
+        int chunkWidth = geometry.getChunkWidth();
+        // A stroke with a cap extends half the stroke width past each end point
+        float inset = cap == Paint.Cap.ROUND ? chunkWidth / 2F : 0.0F;
+        float[] points = geometry.getLinePoints(data, from, to, centerY, factor, inset);
+        strokePaint.setStrokeWidth(chunkWidth);
+        strokePaint.setStrokeCap(cap);
+        canvas.drawLines(points, from * 4, (to - from) * 4, strokePaint);
+    }
+}
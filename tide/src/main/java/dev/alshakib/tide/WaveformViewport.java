@@ -0,0 +1,117 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+/**
+ * Visible window over the whole waveform. The zoom factor is how many view widths the full
+ * waveform spans, and the offset is the position of the left edge as a fraction of the source,
+ * so the window covers {@code [offset, offset + 1 / zoom)}.
+ */
+final class WaveformViewport {
+    static final float MIN_ZOOM = 1.0F;
+
+    private float zoom;
+    private float maxZoom;
+    private double offset;
+
+    WaveformViewport() {
+        this.zoom = MIN_ZOOM;
+        this.maxZoom = MIN_ZOOM;
+    }
+
+    float getZoom() {
+        return zoom;
+    }
+
+    float getMaxZoom() {
+        return maxZoom;
+    }
+
+    void setMaxZoom(float maxZoom) {
+        this.maxZoom = Math.max(MIN_ZOOM, maxZoom);
+        setZoom(zoom, 0.0F);
+    }
+
+    boolean isZoomed() {
+        return zoom > MIN_ZOOM;
+    }
+
+    double getOffset() {
+        return offset;
+    }
+
+    double getSpan() {
+        return 1.0 / zoom;
+    }
+
+    /**
+     * Changes the zoom factor while keeping the point at {@code focus}, a fraction of the view
+     * width, in place. Returns {@code true} if the window moved.
+     */
+    boolean setZoom(float zoom, float focus) {
+        zoom = Math.max(MIN_ZOOM, Math.min(maxZoom, zoom));
+        double anchor = toSource(focus);
+        float oldZoom = this.zoom;
+        double oldOffset = this.offset;
+        this.zoom = zoom;
+        this.offset = clampOffset(anchor - focus / zoom);
+        return oldZoom != this.zoom || oldOffset != this.offset;
+    }
+
+    boolean setOffset(double offset) {
+        double clamped = clampOffset(offset);
+        if (clamped == this.offset) {
+            return false;
+        }
+        this.offset = clamped;
+        return true;
+    }
+
+    void reset() {
+        zoom = MIN_ZOOM;
+        offset = 0.0;
+    }
+
+    /**
+     * Maps a fraction of the view width to a fraction of the source.
+     */
+    double toSource(float viewFraction) {
+        return offset + viewFraction / zoom;
+    }
+
+    /**
+     * Maps a fraction of the source to a fraction of the view width, which falls outside
+     * {@code [0, 1]} when the position is scrolled out of view.
+     */
+    float toView(double sourceFraction) {
+        return (float) ((sourceFraction - offset) * zoom);
+    }
+
+    private double clampOffset(double offset) {
+        return Math.max(0.0, Math.min(1.0 - getSpan(), offset));
+    }
+}
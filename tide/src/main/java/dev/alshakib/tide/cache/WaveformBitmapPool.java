@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.cache;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.DisplayMetrics;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+/**
+ * Memory-capped pool of mutable bitmaps, bucketed by power-of-two allocation size. Borrowed
+ * bitmaps are reconfigured to the requested size and config, so views of similar size can
+ * reuse each other's pixel memory instead of allocating on every layout.
+ * <p>
+ * Each view triple buffers its waveform: one bitmap on screen, the one shown before it or a
+ * spare, and one finished frame or one being rasterized, plus one for live input while
+ * recording. The pool only has to hold that budget for the views being recycled at the same
+ * time, so it is capped by bytes rather than by count. Callers must only {@link #put} a bitmap
+ * once no display list can still draw it, since {@link #get} hands it out to be overwritten
+ * straight away.
+ */
+public class WaveformBitmapPool {
+    /**
+     * Number of buffers a view keeps in rotation for its waveform.
+     */
+    public static final int BUFFERS_PER_VIEW = 3;
+
+    /**
+     * Fallback bound used when no {@link Context} is available: three ARGB buffers for a
+     * 1080 by 400 pixel view.
+     */
+    public static final long DEFAULT_MAX_SIZE = BUFFERS_PER_VIEW * 1080L * 400L * 4L;
+
+    // A waveform strip rarely covers more than a quarter of the screen's shorter side
+    private static final int SCREEN_HEIGHT_FRACTION = 4;
+
+    private static final int BUCKET_COUNT = Integer.SIZE;
+
+    private final ArrayDeque<Bitmap>[] buckets;
+    private final LinkedHashSet<Bitmap> recentlyReturned;
+    private final long maxSize;
+
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long evictionCount;
+
+    public WaveformBitmapPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a pool that holds one view's full triple buffer budget when that view spans the
+     * screen width and a quarter of its height in ARGB. See {@link #getDefaultMaxSize}.
+     */
+    public WaveformBitmapPool(@NonNull Context context) {
+        this(getDefaultMaxSize(context));
+    }
+
+    @SuppressWarnings("unchecked")
+    public WaveformBitmapPool(long maxSize) {
+        this.buckets = new ArrayDeque[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            this.buckets[i] = new ArrayDeque<>();
+        }
+        this.recentlyReturned = new LinkedHashSet<>();
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a cleared bitmap of exactly the requested size and config, reusing a pooled one
+     * when possible.
+     */
+    @NonNull
+    public Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        int byteCount = width * height * getBytesPerPixel(config);
+        synchronized (this) {
+            int bucket = getBucket(byteCount);
+            for (int i = bucket; i <= bucket + 1 && i < BUCKET_COUNT; ++i) {
+                Iterator<Bitmap> iterator = buckets[i].iterator();
+                while (iterator.hasNext()) {
+                    Bitmap bitmap = iterator.next();
+                    if (bitmap.getAllocationByteCount() >= byteCount) {
+                        iterator.remove();
+                        recentlyReturned.remove(bitmap);
+                        size -= bitmap.getAllocationByteCount();
+                        ++hitCount;
+                        bitmap.reconfigure(width, height, config);
+                        bitmap.eraseColor(0);
+                        return bitmap;
+                    }
+                }
+            }
+            ++missCount;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    public void put(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled()) {
+            return;
+        }
+        int byteCount = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || byteCount > maxSize) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            if (!recentlyReturned.add(bitmap)) {
+                return;
+            }
+            buckets[getBucket(byteCount)].addLast(bitmap);
+            size += byteCount;
+            ++putCount;
+            trimToSize(maxSize);
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getPutCount() {
+        return putCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the byte size of {@link #BUFFERS_PER_VIEW} ARGB buffers as wide as the longer side
+     * of the screen and a quarter of the shorter side tall, so the budget survives rotation, or
+     * {@link #DEFAULT_MAX_SIZE} when the display size is unknown.
+     */
+    public static long getDefaultMaxSize(@NonNull Context context) {
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        if (metrics == null || metrics.widthPixels <= 0 || metrics.heightPixels <= 0) {
+            return DEFAULT_MAX_SIZE;
+        }
+        int width = Math.max(metrics.widthPixels, metrics.heightPixels);
+        int height = Math.min(metrics.widthPixels, metrics.heightPixels);
+        long bufferSize = (long) width * (height / SCREEN_HEIGHT_FRACTION) * getBytesPerPixel(Bitmap.Config.ARGB_8888);
+        return BUFFERS_PER_VIEW * bufferSize;
+    }
+
+    private void trimToSize(long limit) {
+        Iterator<Bitmap> iterator = recentlyReturned.iterator();
+        while (size > limit && iterator.hasNext()) {
+            Bitmap eldest = iterator.next();
+            iterator.remove();
+            int byteCount = eldest.getAllocationByteCount();
+            buckets[getBucket(byteCount)].remove(eldest);
+            size -= byteCount;
+            eldest.recycle();
+            ++evictionCount;
+        }
+    }
+
+    private static int getBucket(int byteCount) {
+        return byteCount <= 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(byteCount - 1);
+    }
+
+    private static int getBytesPerPixel(@NonNull Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return "WaveformBitmapPool{" +
+                "size=" + size +
+                ", maxSize=" + maxSize +
+                ", hits=" + hitCount +
+                ", misses=" + missCount +
+                ", evictions=" + evictionCount +
+                '}';
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.cache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import dev.alshakib.tide.sampler.PeakPyramid;
+import dev.alshakib.tide.sampler.PeaksFile;
+
+/**
+ * Size-bounded directory of {@link PeaksFile}s. Least recently used entries are deleted once
+ * the directory grows past its byte budget.
+ */
+public class WaveformDiskCache {
+    public static final long DEFAULT_MAX_SIZE = 16L * 1024L * 1024L;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final File directory;
+    private final long maxSize;
+
+    public WaveformDiskCache(@NonNull File directory) {
+        this(directory, DEFAULT_MAX_SIZE);
+    }
+
+    public WaveformDiskCache(@NonNull File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    @NonNull
+    public File getDirectory() {
+        return directory;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    @Nullable
+    public PeakPyramid get(@NonNull WaveformKey key) {
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            PeakPyramid pyramid = PeaksFile.read(file, key.toString());
+            if (pyramid != null) {
+                //noinspection ResultOfMethodCallIgnored
+                file.setLastModified(System.currentTimeMillis());
+            }
+            return pyramid;
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            return null;
+        }
+    }
+
+    public synchronized void put(@NonNull WaveformKey key, @NonNull PeakPyramid pyramid) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        try {
+            PeaksFile.write(getFile(key), pyramid, key.toString());
+            trimToSize();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void clear() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    private void trimToSize() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(PeaksFile.EXTENSION));
+        if (files == null) {
+            return;
+        }
+        long size = 0L;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        long[] lastModified = new long[files.length];
+        for (int i = 0; i < files.length; ++i) {
+            lastModified[i] = files[i].lastModified();
+        }
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(lastModified[a], lastModified[b]));
+        for (int i = 0; i < order.length && size > maxSize; ++i) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    @NonNull
+    private File getFile(@NonNull WaveformKey key) {
+        return new File(directory, sha1(key.getUri()) + PeaksFile.EXTENSION);
+    }
+
+    @NonNull
+    private static String sha1(@NonNull String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; ++i) {
+                hex[2 * i] = HEX_DIGITS[(digest[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX_DIGITS[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.cache;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * Identifies a media source by its Uri, size and modification time, so a cached waveform is
+ * only reused while the underlying file is unchanged.
+ */
+public final class WaveformKey {
+    private static final String SCHEME_FILE = "file";
+    private static final String COLUMN_LAST_MODIFIED = "last_modified";
+    private static final String COLUMN_DATE_MODIFIED = "date_modified";
+    private static final long SECOND_IN_MILLIS = 1000L;
+
+    private final String uri;
+    private final long size;
+    private final long lastModified;
+
+    public WaveformKey(@NonNull String uri, long size, long lastModified) {
+        this.uri = uri;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Resolves the size and modification time of {@code uri}. Returns {@code null} when the
+     * provider does not report a size, in which case the source cannot be cached safely.
+     */
+    @Nullable
+    public static WaveformKey of(@NonNull Context context, @NonNull Uri uri) {
+        long size = -1L;
+        long lastModified = 0L;
+        if (SCHEME_FILE.equals(uri.getScheme()) && uri.getPath() != null) {
+            File file = new File(uri.getPath());
+            size = file.length();
+            lastModified = file.lastModified();
+        } else {
+            try (Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    size = getLong(cursor, OpenableColumns.SIZE, -1L);
+                    lastModified = getLong(cursor, COLUMN_LAST_MODIFIED, 0L);
+                    if (lastModified == 0L) {
+                        lastModified = getLong(cursor, COLUMN_DATE_MODIFIED, 0L) * SECOND_IN_MILLIS;
+                    }
+                }
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+        return size > 0 ? new WaveformKey(uri.toString(), size, lastModified) : null;
+    }
+
+    @NonNull
+    public String getUri() {
+        return uri;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    private static long getLong(@NonNull Cursor cursor, @NonNull String column, long fallback) {
+        int index = cursor.getColumnIndex(column);
+        if (index == -1 || cursor.isNull(index)) {
+            return fallback;
+        }
+        return cursor.getLong(index);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WaveformKey that = (WaveformKey) o;
+        return size == that.size && lastModified == that.lastModified && uri.equals(that.uri);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(uri, size, lastModified);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return uri + '|' + size + '|' + lastModified;
+    }
+}
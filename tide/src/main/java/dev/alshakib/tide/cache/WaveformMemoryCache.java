@@ -0,0 +1,189 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.cache;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import dev.alshakib.tide.sampler.PeakPyramid;
+
+/**
+ * Process-wide LRU cache of immutable {@link PeakPyramid}s, bounded by their byte weight, so
+ * views showing the same source share one summary instead of decoding it again.
+ */
+public class WaveformMemoryCache {
+    /**
+     * Fallback bound used when no {@link Context} is available to size the cache from the heap.
+     */
+    public static final long DEFAULT_MAX_SIZE = 8L * 1024L * 1024L;
+
+    /**
+     * Share of the per-app heap given to the cache. A stereo source summarised at the default
+     * bucket capacity weighs about 300 KiB with its lanes, whatever its length, so 1/16 of a
+     * typical 256 MiB heap keeps around fifty sources, a long list's worth, resident.
+     */
+    private static final int HEAP_FRACTION = 16;
+
+    private final LinkedHashMap<WaveformKey, PeakPyramid> map;
+    private final long maxSize;
+
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long evictionCount;
+
+    public WaveformMemoryCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a cache bounded by 1/16 of the heap this process may use, as reported by
+     * {@link ActivityManager#getMemoryClass()}.
+     */
+    public WaveformMemoryCache(@NonNull Context context) {
+        this(getDefaultMaxSize(context));
+    }
+
+    public WaveformMemoryCache(long maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.map = new LinkedHashMap<>(0, 0.75F, true);
+        this.maxSize = maxSize;
+    }
+
+    @Nullable
+    public synchronized PeakPyramid get(@NonNull WaveformKey key) {
+        PeakPyramid pyramid = map.get(key);
+        if (pyramid != null) {
+            ++hitCount;
+        } else {
+            ++missCount;
+        }
+        return pyramid;
+    }
+
+    public synchronized void put(@NonNull WaveformKey key, @NonNull PeakPyramid pyramid) {
+        long weight = pyramid.getByteCount();
+        if (weight > maxSize) {
+            return;
+        }
+        ++putCount;
+        PeakPyramid previous = map.put(key, pyramid);
+        size += weight;
+        if (previous != null) {
+            size -= previous.getByteCount();
+        }
+        trimToSize(maxSize);
+    }
+
+    @Nullable
+    public synchronized PeakPyramid remove(@NonNull WaveformKey key) {
+        PeakPyramid previous = map.remove(key);
+        if (previous != null) {
+            size -= previous.getByteCount();
+        }
+        return previous;
+    }
+
+    public synchronized void clear() {
+        trimToSize(-1);
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int getEntryCount() {
+        return map.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getPutCount() {
+        return putCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns 1/16 of the per-app heap limit in bytes, or {@link #DEFAULT_MAX_SIZE} when the
+     * limit is unavailable.
+     */
+    public static long getDefaultMaxSize(@NonNull Context context) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getApplicationContext().getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null || activityManager.getMemoryClass() <= 0) {
+            return DEFAULT_MAX_SIZE;
+        }
+        return activityManager.getMemoryClass() * 1024L * 1024L / HEAP_FRACTION;
+    }
+
+    private void trimToSize(long limit) {
+        Iterator<Map.Entry<WaveformKey, PeakPyramid>> iterator = map.entrySet().iterator();
+        while (size > limit && iterator.hasNext()) {
+            Map.Entry<WaveformKey, PeakPyramid> eldest = iterator.next();
+            size -= eldest.getValue().getByteCount();
+            iterator.remove();
+            ++evictionCount;
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        long accesses = hitCount + missCount;
+        int hitPercent = accesses != 0 ? (int) (100 * hitCount / accesses) : 0;
+        return "WaveformMemoryCache{" +
+                "size=" + size +
+                ", maxSize=" + maxSize +
+                ", hits=" + hitCount +
+                ", misses=" + missCount +
+                ", hitRate=" + hitPercent + "%" +
+                '}';
+    }
+}
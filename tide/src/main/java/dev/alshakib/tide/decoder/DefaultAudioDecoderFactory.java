@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.decoder;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes WAV files with {@link PcmDecoder} and falls back to {@link MediaCodecDecoder}
+ * for everything else.
+ */
+public class DefaultAudioDecoderFactory implements AudioDecoderFactory {
+    @NonNull
+    @Override
+    public AudioDecoder create(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        InputStream stream;
+        try {
+            stream = context.getContentResolver().openInputStream(uri);
+        } catch (RuntimeException e) {
+            throw new IOException(e);
+        }
+        if (stream == null) {
+            throw new FileNotFoundException("Unable to open " + uri);
+        }
+        BufferedInputStream bufferedStream = new BufferedInputStream(stream);
+        try {
+            byte[] header = new byte[PcmDecoder.WAV_HEADER_PROBE_SIZE];
+            bufferedStream.mark(header.length);
+            int length = 0;
+            int read;
+            while (length < header.length
+                    && (read = bufferedStream.read(header, length, header.length - length)) != -1) {
+                length += read;
+            }
+            bufferedStream.reset();
+            if (PcmDecoder.isWav(header, length)) {
+                return PcmDecoder.fromWav(bufferedStream);
+            }
+        } catch (IOException e) {
+            bufferedStream.close();
+            throw e;
+        } catch (RuntimeException e) {
+            bufferedStream.close();
+            throw new IOException(e);
+        }
+        bufferedStream.close();
+        return new MediaCodecDecoder(context, uri);
+    }
+}
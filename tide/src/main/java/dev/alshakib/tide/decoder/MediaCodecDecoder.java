@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide.decoder;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Adapts the platform {@link MediaExtractor} and {@link MediaCodec} pair to {@link AudioDecoder},
+ * so any container and codec supported by the device can be turned into PCM.
+ */
+public class MediaCodecDecoder implements AudioDecoder {
+    private static final String MIME_AUDIO_PREFIX = "audio/";
+    private static final long TIMEOUT_US = 10_000L;
+
+    private final MediaExtractor extractor;
+    private final MediaCodec codec;
+    private final MediaCodec.BufferInfo bufferInfo;
+
+    private int sampleRate;
+    private int channelCount;
+    private boolean floatOutput;
+    private boolean inputDone;
+    private boolean outputDone;
+
+    private ByteBuffer outputBuffer;
+    private int outputIndex;
+
+    public MediaCodecDecoder(@NonNull Context context, @NonNull Uri uri) throws IOException {
+        this.extractor = new MediaExtractor();
+        this.bufferInfo = new MediaCodec.BufferInfo();
+        this.outputIndex = -1;
+        MediaCodec mediaCodec = null;
+        try {
+            extractor.setDataSource(context, uri, null);
+            MediaFormat format = selectAudioTrack(extractor);
+            if (format == null) {
+                throw new IOException("No audio track found in " + uri);
+            }
+            updateFormat(format);
+            mediaCodec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            mediaCodec.configure(format, null, null, 0);
+            mediaCodec.start();
+        } catch (IOException | RuntimeException e) {
+            if (mediaCodec != null) {
+                mediaCodec.release();
+            }
+            extractor.release();
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw new IOException(e);
+        }
+        this.codec = mediaCodec;
+    }
+
+    @Override
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    @Override
+    public int read(@NonNull short[] buffer, int offset, int length) throws IOException {
+        int written = 0;
+        try {
+            while (written < length) {
+                if (outputBuffer == null) {
+                    if (outputDone) {
+                        break;
+                    }
+                    pump();
+                    if (outputBuffer == null) {
+                        if (written > 0) {
+                            break;
+                        }
+                        continue;
+                    }
+                }
+                int copied = drain(buffer, offset + written, length - written);
+                if (copied == 0) {
+                    break;
+                }
+                written += copied;
+            }
+        } catch (IllegalStateException e) {
+            throw new IOException(e);
+        }
+        return written == 0 && outputDone ? -1 : written;
+    }
+
+    @Override
+    public void close() {
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignored) {
+        } finally {
+            codec.release();
+            extractor.release();
+        }
+    }
+
+    private void pump() {
+        if (!inputDone) {
+            int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+            if (inputIndex >= 0) {
+                ByteBuffer inputBuffer = codec.getInputBuffer(inputIndex);
+                int size = inputBuffer != null ? extractor.readSampleData(inputBuffer, 0) : -1;
+                if (size < 0) {
+                    codec.queueInputBuffer(inputIndex, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                    inputDone = true;
+                } else {
+                    codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                    extractor.advance();
+                }
+            }
+        }
+        int index = codec.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+        if (index >= 0) {
+            if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                outputDone = true;
+            }
+            ByteBuffer buffer = bufferInfo.size > 0 ? codec.getOutputBuffer(index) : null;
+            if (buffer != null) {
+                buffer.position(bufferInfo.offset);
+                buffer.limit(bufferInfo.offset + bufferInfo.size);
+                buffer.order(ByteOrder.nativeOrder());
+                outputBuffer = buffer;
+                outputIndex = index;
+            } else {
+                codec.releaseOutputBuffer(index, false);
+            }
+        } else if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+            updateFormat(codec.getOutputFormat());
+        }
+    }
+
+    private int drain(@NonNull short[] buffer, int offset, int length) {
+        int bytesPerSample = floatOutput ? 4 : 2;
+        int available = outputBuffer.remaining() / bytesPerSample;
+        int count = Math.min(available, length - length % channelCount);
+        int position = outputBuffer.position();
+        for (int i = 0; i < count; ++i, position += bytesPerSample) {
+            if (floatOutput) {
+                float value = outputBuffer.getFloat(position);
+                buffer[offset + i] = (short) (Math.max(-1.0F, Math.min(1.0F, value)) * Short.MAX_VALUE);
+            } else {
+                buffer[offset + i] = outputBuffer.getShort(position);
+            }
+        }
+        outputBuffer.position(position);
+        if (outputBuffer.remaining() < bytesPerSample) {
+            codec.releaseOutputBuffer(outputIndex, false);
+            outputBuffer = null;
+            outputIndex = -1;
+        }
+        return count;
+    }
+
+    private void updateFormat(@NonNull MediaFormat format) {
+        if (format.containsKey(MediaFormat.KEY_SAMPLE_RATE)) {
+            sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        }
+        if (format.containsKey(MediaFormat.KEY_CHANNEL_COUNT)) {
+            channelCount = Math.max(1, format.getInteger(MediaFormat.KEY_CHANNEL_COUNT));
+        }
+        floatOutput = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N
+                && format.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                && format.getInteger(MediaFormat.KEY_PCM_ENCODING) == AudioFormat.ENCODING_PCM_FLOAT;
+    }
+
+    @Nullable
+    private static MediaFormat selectAudioTrack(@NonNull MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); ++i) {
+            MediaFormat format = extractor.getTrackFormat(i);
+            String mime = format.getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith(MIME_AUDIO_PREFIX)) {
+                extractor.selectTrack(i);
+                return format;
+            }
+        }
+        return null;
+    }
+}
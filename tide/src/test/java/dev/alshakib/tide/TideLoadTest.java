@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2021 Al Shakib (shakib@alshakib.dev)
+ *
+ * This file is part of Tide
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.alshakib.tide;
+
+import org.junit.Test;
+
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TideLoadTest {
+    private static final int GC_ATTEMPTS = 20;
+
+    @Test
+    public void deliveredLoadReleasesItsTask() throws InterruptedException {
+        TideLoad.Task task = newTask(new byte[1 << 20]);
+        WeakReference<TideLoad.Task> taskRef = new WeakReference<>(task);
+        // Delivering never touches the handler, which is only a stub on the JVM
+        TideLoad load = new TideLoad(null, task);
+        task = null;
+        assertTrue(new TideLoad.Token(load, 0).deliver());
+        assertCollected(taskRef);
+        assertTrue(load.isDone());
+    }
+
+    @Test
+    public void cancelledLoadReleasesItsTask() throws InterruptedException {
+        TideLoad.Task task = newTask(new byte[1 << 20]);
+        WeakReference<TideLoad.Task> taskRef = new WeakReference<>(task);
+        TideLoad load = new TideLoad(null, task);
+        task = null;
+        load.cancel();
+        assertCollected(taskRef);
+        assertTrue(load.isCancelled());
+    }
+
+    @Test
+    public void staleTokenDoesNotDeliver() {
+        TideLoad load = new TideLoad(null, newTask(new byte[0]));
+        load.cancel();
+        assertFalse(new TideLoad.Token(load, 0).deliver());
+        assertFalse(load.isDone());
+    }
+
+    private static TideLoad.Task newTask(byte[] raw) {
+        // Captures the input the way TideView's loads do
+        return token -> assertNotNull(raw);
+    }
+
+    private static void assertCollected(WeakReference<?> ref) throws InterruptedException {
+        for (int i = 0; i < GC_ATTEMPTS && ref.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertNull("Load still reaches its task", ref.get());
+    }
+}